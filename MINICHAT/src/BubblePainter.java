@@ -0,0 +1,194 @@
+import java.awt.*;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+// Draws chat bubbles without Swing's HTML views: text is word-wrapped here
+// and the wrap is cached on the entry for the width it was computed at.
+// Fonts, strokes and the time format are shared by every bubble.
+public class BubblePainter {
+
+    public static final Font SENDER_FONT = new Font("Segoe UI", Font.BOLD, 11);
+    public static final Font TEXT_FONT = new Font("Segoe UI", Font.PLAIN, 14);
+    public static final Font TIME_FONT = new Font("Segoe UI", Font.PLAIN, 10);
+    public static final Font SYSTEM_FONT = new Font("Segoe UI", Font.ITALIC, 12);
+
+    private static final Color EDGE = new Color(255, 255, 255, 30);
+    private static final Color TIME_COLOR = new Color(255, 255, 255, 150);
+    private static final Stroke EDGE_STROKE = new BasicStroke(1);
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm")
+            .withZone(ZoneId.systemDefault());
+
+    // Row/bubble spacing, same as the old FlowLayout + EmptyBorder bubbles
+    private static final int ROW_GAP = 5;
+    private static final int SYSTEM_ROW_GAP = 8;
+    private static final int PAD_X = 14;
+    private static final int PAD_Y = 8;
+    private static final int LINE_GAP = 3;
+    private static final int ARC = 18;
+    private static final int MIN_TEXT_WIDTH = 120;
+    private static final int MAX_TEXT_WIDTH = 480;
+
+    private final FontMetrics senderMetrics;
+    private final FontMetrics textMetrics;
+    private final FontMetrics timeMetrics;
+    private final FontMetrics systemMetrics;
+
+    public BubblePainter(Component host) {
+        senderMetrics = host.getFontMetrics(SENDER_FONT);
+        textMetrics = host.getFontMetrics(TEXT_FONT);
+        timeMetrics = host.getFontMetrics(TIME_FONT);
+        systemMetrics = host.getFontMetrics(SYSTEM_FONT);
+    }
+
+    // Text column of a bubble: about two thirds of the transcript width
+    private static int textWidthFor(int rowWidth) {
+        return Math.max(MIN_TEXT_WIDTH, Math.min(MAX_TEXT_WIDTH, rowWidth * 2 / 3 - 2 * PAD_X));
+    }
+
+    private static boolean showsSender(TranscriptEntry entry) {
+        return entry.sender != null && !entry.mine;
+    }
+
+    private String timeOf(TranscriptEntry entry) {
+        if (entry.timeText == null) {
+            entry.timeText = TIME_FORMAT.format(Instant.ofEpochMilli(entry.timestamp));
+        }
+        return entry.timeText;
+    }
+
+    // Wrapped lines for the entry at this row width (cached)
+    private String[] lines(TranscriptEntry entry, int rowWidth) {
+        boolean system = entry.kind == TranscriptEntry.Kind.SYSTEM;
+        int maxWidth = system ? Math.max(MIN_TEXT_WIDTH, rowWidth - 2 * PAD_X) : textWidthFor(rowWidth);
+        if (entry.wrapWidth != maxWidth) {
+            FontMetrics fm = system ? systemMetrics : textMetrics;
+            entry.wrapLines = wrap(entry.text, fm, maxWidth);
+            int widest = 0;
+            for (String line : entry.wrapLines) {
+                widest = Math.max(widest, fm.stringWidth(line));
+            }
+            entry.wrapTextWidth = widest;
+            entry.wrapWidth = maxWidth;
+        }
+        return entry.wrapLines;
+    }
+
+    // Greedy word wrap; words wider than the column are split by code point
+    static String[] wrap(String text, FontMetrics fm, int maxWidth) {
+        List<String> lines = new ArrayList<>();
+        StringBuilder line = new StringBuilder();
+        int lineWidth = 0;
+        int spaceWidth = fm.charWidth(' ');
+        for (String word : text.split(" ", -1)) {
+            int wordWidth = fm.stringWidth(word);
+            if (line.length() > 0 && lineWidth + spaceWidth + wordWidth <= maxWidth) {
+                line.append(' ').append(word);
+                lineWidth += spaceWidth + wordWidth;
+                continue;
+            }
+            if (line.length() > 0) {
+                lines.add(line.toString());
+                line.setLength(0);
+                lineWidth = 0;
+            }
+            if (wordWidth <= maxWidth) {
+                line.append(word);
+                lineWidth = wordWidth;
+                continue;
+            }
+            for (int i = 0; i < word.length();) {
+                int cp = word.codePointAt(i);
+                int cpWidth = fm.stringWidth(new String(Character.toChars(cp)));
+                if (lineWidth + cpWidth > maxWidth && line.length() > 0) {
+                    lines.add(line.toString());
+                    line.setLength(0);
+                    lineWidth = 0;
+                }
+                line.appendCodePoint(cp);
+                lineWidth += cpWidth;
+                i += Character.charCount(cp);
+            }
+        }
+        lines.add(line.toString());
+        return lines.toArray(new String[0]);
+    }
+
+    // ════════════════════════════════════════════════════════════════════
+    // MEASURE
+    // ════════════════════════════════════════════════════════════════════
+    public int rowHeight(TranscriptEntry entry, int rowWidth) {
+        String[] lines = lines(entry, rowWidth);
+        if (entry.kind == TranscriptEntry.Kind.SYSTEM) {
+            return 2 * SYSTEM_ROW_GAP + lines.length * systemMetrics.getHeight();
+        }
+        return 2 * ROW_GAP + bubbleHeight(entry, lines);
+    }
+
+    private int bubbleHeight(TranscriptEntry entry, String[] lines) {
+        int height = 2 * PAD_Y + lines.length * textMetrics.getHeight() + LINE_GAP + timeMetrics.getHeight();
+        if (showsSender(entry)) {
+            height += senderMetrics.getHeight() + LINE_GAP;
+        }
+        return height;
+    }
+
+    private int bubbleWidth(TranscriptEntry entry) {
+        int inner = Math.max(entry.wrapTextWidth, timeMetrics.stringWidth(timeOf(entry)));
+        if (showsSender(entry)) {
+            inner = Math.max(inner, senderMetrics.stringWidth(entry.sender));
+        }
+        return inner + 2 * PAD_X;
+    }
+
+    // ════════════════════════════════════════════════════════════════════
+    // PAINT
+    // ════════════════════════════════════════════════════════════════════
+    public void paintSystem(Graphics2D g2, TranscriptEntry entry, int rowWidth, Color textColor) {
+        String[] lines = lines(entry, rowWidth);
+        g2.setFont(SYSTEM_FONT);
+        g2.setColor(textColor);
+        int y = SYSTEM_ROW_GAP + systemMetrics.getAscent();
+        for (String line : lines) {
+            g2.drawString(line, (rowWidth - systemMetrics.stringWidth(line)) / 2, y);
+            y += systemMetrics.getHeight();
+        }
+    }
+
+    public void paintBubble(Graphics2D g2, TranscriptEntry entry, int rowWidth, Color background, Color textColor,
+            Color senderColor) {
+        String[] lines = lines(entry, rowWidth);
+        int width = bubbleWidth(entry);
+        int height = bubbleHeight(entry, lines);
+        int x = entry.mine ? rowWidth - width : 0;
+        int y = ROW_GAP;
+
+        g2.setColor(background);
+        g2.fillRoundRect(x, y, width, height, ARC, ARC);
+        g2.setColor(EDGE);
+        g2.setStroke(EDGE_STROKE);
+        g2.drawRoundRect(x, y, width - 1, height - 1, ARC, ARC);
+
+        int textX = x + PAD_X;
+        int textY = y + PAD_Y;
+        if (showsSender(entry)) {
+            g2.setFont(SENDER_FONT);
+            g2.setColor(senderColor);
+            g2.drawString(entry.sender, textX, textY + senderMetrics.getAscent());
+            textY += senderMetrics.getHeight() + LINE_GAP;
+        }
+        g2.setFont(TEXT_FONT);
+        g2.setColor(textColor);
+        for (String line : lines) {
+            g2.drawString(line, textX, textY + textMetrics.getAscent());
+            textY += textMetrics.getHeight();
+        }
+        String time = timeOf(entry);
+        g2.setFont(TIME_FONT);
+        g2.setColor(TIME_COLOR);
+        g2.drawString(time, x + width - PAD_X - timeMetrics.stringWidth(time),
+                textY + LINE_GAP + timeMetrics.getAscent());
+    }
+}
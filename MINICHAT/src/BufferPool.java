@@ -0,0 +1,58 @@
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class BufferPool {
+
+    // Size classes dùng chung cho mọi kết nối; chỉ mượn khi có dữ liệu đang xử lý
+    private static final int[] SIZES = { 512, 4 * 1024, 64 * 1024, 1024 * 1024 };
+    private static final int[] MAX_POOLED = { 1024, 256, 32, 4 };
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static final ConcurrentLinkedQueue<ByteBuffer>[] free = new ConcurrentLinkedQueue[SIZES.length];
+    private static final AtomicInteger[] pooled = new AtomicInteger[SIZES.length];
+
+    static {
+        for (int i = 0; i < SIZES.length; i++) {
+            free[i] = new ConcurrentLinkedQueue<>();
+            pooled[i] = new AtomicInteger();
+        }
+    }
+
+    public static int smallestSize() {
+        return SIZES[0];
+    }
+
+    // Smallest pooled direct buffer that fits, or a one-off heap buffer if
+    // the request is larger than the biggest class
+    public static ByteBuffer acquire(int minSize) {
+        for (int i = 0; i < SIZES.length; i++) {
+            if (SIZES[i] >= minSize) {
+                ByteBuffer buffer = free[i].poll();
+                if (buffer != null) {
+                    pooled[i].decrementAndGet();
+                    buffer.clear();
+                    return buffer;
+                }
+                return ByteBuffer.allocateDirect(SIZES[i]);
+            }
+        }
+        return ByteBuffer.allocate(minSize);
+    }
+
+    public static void release(ByteBuffer buffer) {
+        if (buffer == null || !buffer.isDirect()) {
+            return;
+        }
+        for (int i = 0; i < SIZES.length; i++) {
+            if (SIZES[i] == buffer.capacity()) {
+                if (pooled[i].incrementAndGet() <= MAX_POOLED[i]) {
+                    free[i].offer(buffer);
+                } else {
+                    pooled[i].decrementAndGet();
+                }
+                return;
+            }
+        }
+    }
+}
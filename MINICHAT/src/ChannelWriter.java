@@ -0,0 +1,97 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+// Writer that encodes straight into a pooled direct buffer; the buffer is
+// only held between the first write of a batch and flush()
+public class ChannelWriter extends Writer {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final SocketChannel channel;
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private ByteBuffer buffer;
+
+    public ChannelWriter(SocketChannel channel) {
+        this.channel = channel;
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        if (c < 0x80) {
+            if (buffer == null) {
+                buffer = BufferPool.acquire(BUFFER_SIZE);
+            } else if (!buffer.hasRemaining()) {
+                drain();
+            }
+            buffer.put((byte) c);
+        } else {
+            encode(CharBuffer.wrap(new char[] { (char) c }));
+        }
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        encode(CharBuffer.wrap(str, off, off + len));
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        encode(CharBuffer.wrap(cbuf, off, len));
+    }
+
+    private void encode(CharBuffer chars) throws IOException {
+        if (buffer == null) {
+            buffer = BufferPool.acquire(BUFFER_SIZE);
+        }
+        while (true) {
+            CoderResult result = encoder.encode(chars, buffer, false);
+            if (!result.isOverflow()) {
+                break;
+            }
+            drain();
+        }
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    // Send everything and hand the buffer back to the pool
+    @Override
+    public void flush() throws IOException {
+        if (buffer != null) {
+            try {
+                drain();
+            } finally {
+                BufferPool.release(buffer);
+                buffer = null;
+            }
+        }
+    }
+
+    // Read from other threads for memory accounting
+    public long bufferBytes() {
+        ByteBuffer current = buffer;
+        return current == null ? 0 : current.capacity();
+    }
+
+    // Writer thread only: drop unsent bytes and return the buffer
+    @Override
+    public void close() {
+        BufferPool.release(buffer);
+        buffer = null;
+    }
+}
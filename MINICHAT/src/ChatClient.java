@@ -0,0 +1,200 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// MiniChat connection without Swing: line framing, typed events and an async
+// send queue over a pluggable ChatTransport. The GUI, the console client and
+// bots all sit on this. Listener callbacks run on the transport's I/O thread
+// (shared with other connections), so they must hand real work elsewhere.
+public class ChatClient {
+
+    public interface Listener {
+        // Connected; CAPS has already been sent, so send the login next
+        void connected(ChatClient client);
+
+        void event(ChatClient client, ServerEvent event);
+
+        // The lines of one BATCH:n frame, in order. Override to handle a burst
+        // in one go (one hand-off to another thread instead of n)
+        default void events(ChatClient client, List<ServerEvent> batch) {
+            for (ServerEvent event : batch) {
+                event(client, event);
+            }
+        }
+
+        // pendingBytes() fell back to zero after offer() refused a line
+        default void writable(ChatClient client) {
+        }
+
+        // cause is null when the server closed the connection or close() was called
+        void disconnected(ChatClient client, IOException cause);
+    }
+
+    // offer() refuses new lines while more than this is waiting to be written
+    public static final int DEFAULT_HIGH_WATER = 256 * 1024;
+    // Longer lines from the server are skipped, as LineReader does on the
+    // server side, so one bad line cannot grow the buffer without bound
+    public static final int MAX_LINE_BYTES = Integer.getInteger("minichat.maxLineBytes", 1024 * 1024);
+
+    private final ChatTransport transport;
+    private final Listener listener;
+    private final int highWater;
+    private final AtomicBoolean started = new AtomicBoolean(false);
+    private volatile boolean blocked = false;
+
+    // I/O thread only: bytes of the line being received
+    private final ByteArrayOutputStream partial = new ByteArrayOutputStream(256);
+    // I/O thread only: skipping the rest of an oversized line
+    private boolean discarding = false;
+    // I/O thread only: lines still to come of the current BATCH:n frame
+    private int batchLeft = 0;
+    private List<ServerEvent> batch;
+
+    public ChatClient(ChatTransport transport, Listener listener) {
+        this(transport, listener, DEFAULT_HIGH_WATER);
+    }
+
+    public ChatClient(ChatTransport transport, Listener listener, int highWater) {
+        this.transport = transport;
+        this.listener = listener;
+        this.highWater = highWater;
+    }
+
+    public static ChatClient tcp(String host, int port, Listener listener) {
+        return new ChatClient(new TcpTransport(host, port), listener);
+    }
+
+    public void connect() {
+        if (!started.compareAndSet(false, true)) {
+            throw new IllegalStateException("ChatClient đã kết nối");
+        }
+        transport.open(new ChatTransport.Handler() {
+            @Override
+            public void opened() {
+                // Server may then pack bursts as BATCH:n; received() unpacks them
+                send("CAPS:BATCH");
+                listener.connected(ChatClient.this);
+            }
+
+            @Override
+            public void received(ByteBuffer data) {
+                receive(data);
+            }
+
+            @Override
+            public void drained() {
+                if (blocked) {
+                    blocked = false;
+                    listener.writable(ChatClient.this);
+                }
+            }
+
+            @Override
+            public void closed(IOException cause) {
+                listener.disconnected(ChatClient.this, cause);
+            }
+        });
+    }
+
+    // Queue one protocol line; the future completes once it is on the wire
+    public CompletableFuture<Void> send(String line) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        transport.write(ByteBuffer.wrap((line + "\n").getBytes(StandardCharsets.UTF_8)), done);
+        return done;
+    }
+
+    // Like send(), but refuses (false) instead of queueing past the high-water
+    // mark; Listener.writable() says when to try again
+    public boolean offer(String line) {
+        if (!isWritable()) {
+            blocked = true;
+            // Drained between the check and the flag: nobody would call writable()
+            if (!isWritable()) {
+                return false;
+            }
+            blocked = false;
+        }
+        send(line);
+        return true;
+    }
+
+    public boolean isWritable() {
+        return transport.pendingBytes() <= highWater;
+    }
+
+    public long pendingBytes() {
+        return transport.pendingBytes();
+    }
+
+    public void close() {
+        transport.close();
+    }
+
+    // Split into lines ('\n', optional '\r'). The n lines after a BATCH:n
+    // header reach the listener as one events() call
+    private void receive(ByteBuffer data) {
+        while (data.hasRemaining()) {
+            byte b = data.get();
+            if (b != '\n') {
+                if (discarding) {
+                    continue;
+                }
+                if (partial.size() >= MAX_LINE_BYTES) {
+                    System.out.println("⚠ " + new FrameTooLargeException(MAX_LINE_BYTES).getMessage()
+                            + ", bỏ qua dòng từ server");
+                    partial.reset();
+                    discarding = true;
+                    continue;
+                }
+                partial.write(b);
+                continue;
+            }
+            if (discarding) {
+                discarding = false;
+                lineSkipped();
+                continue;
+            }
+            int length = partial.size();
+            byte[] bytes = partial.toByteArray();
+            partial.reset();
+            if (length > 0 && bytes[length - 1] == '\r') {
+                length--;
+            }
+            String line = new String(bytes, 0, length, StandardCharsets.UTF_8);
+            if (batchLeft == 0 && line.startsWith("BATCH:")) {
+                try {
+                    batchLeft = Math.max(0, Integer.parseInt(line.substring(6)));
+                    batch = new ArrayList<>(batchLeft);
+                } catch (NumberFormatException ignored) {
+                }
+                continue;
+            }
+            if (batchLeft > 0) {
+                batch.add(ServerEvent.parse(line));
+                if (--batchLeft == 0) {
+                    List<ServerEvent> events = batch;
+                    batch = null;
+                    listener.events(this, events);
+                }
+                continue;
+            }
+            listener.event(this, ServerEvent.parse(line));
+        }
+    }
+
+    // A skipped line still counts towards its BATCH:n frame
+    private void lineSkipped() {
+        if (batchLeft > 0 && --batchLeft == 0) {
+            List<ServerEvent> events = batch;
+            batch = null;
+            if (!events.isEmpty()) {
+                listener.events(this, events);
+            }
+        }
+    }
+}
@@ -1,1400 +1,2073 @@
-import javax.swing.*;
-import javax.swing.border.*;
-import java.awt.*;
-import java.awt.event.*;
-import java.awt.geom.*;
-import java.awt.image.BufferedImage;
-import java.io.*;
-import java.net.*;
-import java.text.SimpleDateFormat;
-import java.util.*;
-
-public class ChatClientGUI extends JFrame {
-
-    // ═══════════════════════════════════════════════════════════════════
-    // 🎨 THEME SYSTEM - Light/Dark Mode
-    // ═══════════════════════════════════════════════════════════════════
-    private boolean isDarkMode = true;
-
-    // Dark Theme Colors
-    private static final Color DARK_BG = new Color(15, 15, 25, 220);
-    private static final Color DARK_PANEL = new Color(30, 30, 50, 180);
-    private static final Color DARK_LIGHT = new Color(60, 60, 90, 150);
-    private static final Color DARK_BORDER = new Color(100, 100, 140, 100);
-    private static final Color DARK_TEXT = new Color(255, 255, 255);
-    private static final Color DARK_TEXT_DIM = new Color(140, 140, 160);
-    private static final Color DARK_MSG_RECEIVED = new Color(45, 45, 70, 200);
-
-    // Light Theme Colors
-    private static final Color LIGHT_BG = new Color(240, 243, 250, 240);
-    private static final Color LIGHT_PANEL = new Color(255, 255, 255, 200);
-    private static final Color LIGHT_LIGHT = new Color(230, 235, 245, 180);
-    private static final Color LIGHT_BORDER = new Color(200, 205, 220, 150);
-    private static final Color LIGHT_TEXT = new Color(30, 30, 50);
-    private static final Color LIGHT_TEXT_DIM = new Color(100, 100, 120);
-    private static final Color LIGHT_MSG_RECEIVED = new Color(235, 238, 248, 220);
-
-    // Accent Colors (shared)
-    private static final Color ACCENT_PRIMARY = new Color(138, 43, 226);
-    private static final Color ACCENT_SECONDARY = new Color(0, 191, 255);
-    private static final Color ACCENT_GRADIENT_1 = new Color(123, 104, 238);
-    private static final Color ACCENT_GRADIENT_2 = new Color(65, 105, 225);
-    private static final Color MSG_SENT_BG = new Color(123, 104, 238, 200);
-    private static final Color ONLINE_DOT = new Color(50, 205, 50);
-
-    // Current theme colors (will be updated)
-    private Color glassBg, glassPanel, glassLight, glassBorder, textPrimary, textDim, msgReceivedBg;
-
-    // ═══════════════════════════════════════════════════════════════════
-    // COMPONENTS
-    // ═══════════════════════════════════════════════════════════════════
-    private JPanel mainContentPane;
-    private JPanel chatPanel;
-    private JPanel sidebarPanel;
-    private JPanel chatAreaPanel;
-    private JTextField inputField;
-    private JButton sendButton;
-    private JButton themeToggleBtn;
-    private JLabel statusLabel;
-    private JLabel currentRoomLabel;
-    private JScrollPane chatScrollPane;
-    private DefaultListModel<String> roomListModel;
-    private DefaultListModel<String> userListModel;
-    private JList<String> roomList;
-    private JList<String> userList;
-
-    // Network
-    private Socket socket;
-    private PrintWriter out;
-    private BufferedReader in;
-    private String username;
-    private String currentRoom = null;
-    private boolean connected = false;
-
-    // Window dragging
-    private Point dragOffset;
-
-    // Server config
-    private static final String SERVER_IP = "127.0.0.1";
-    private static final int SERVER_PORT = 9999;
-
-    // Background image
-    private BufferedImage darkBgImage, lightBgImage;
-
-    public ChatClientGUI() {
-        username = showStyledInputDialog();
-        if (username == null || username.trim().isEmpty()) {
-            username = "User" + (int) (Math.random() * 1000);
-        }
-
-        applyTheme();
-        createBackgroundImages();
-        setupWindow();
-        setupTitleBar();
-        setupMainContent();
-        setupStatusBar();
-        setAppIcon();
-
-        setVisible(true);
-        connectToServer();
-    }
-
-    // ═══════════════════════════════════════════════════════════════════
-    // APP ICON
-    // ═══════════════════════════════════════════════════════════════════
-    private void setAppIcon() {
-        // Create a custom chat icon
-        BufferedImage icon = new BufferedImage(64, 64, BufferedImage.TYPE_INT_ARGB);
-        Graphics2D g2 = icon.createGraphics();
-        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-
-        // Background circle with gradient
-        GradientPaint gradient = new GradientPaint(0, 0, ACCENT_GRADIENT_1, 64, 64, ACCENT_GRADIENT_2);
-        g2.setPaint(gradient);
-        g2.fillOval(4, 4, 56, 56);
-
-        // Chat bubble shape
-        g2.setColor(Color.WHITE);
-        g2.fillRoundRect(14, 18, 36, 24, 12, 12);
-
-        // Bubble tail
-        int[] xPoints = { 18, 14, 22 };
-        int[] yPoints = { 38, 48, 42 };
-        g2.fillPolygon(xPoints, yPoints, 3);
-
-        // Dots in bubble
-        g2.setColor(ACCENT_PRIMARY);
-        g2.fillOval(20, 26, 6, 6);
-        g2.fillOval(29, 26, 6, 6);
-        g2.fillOval(38, 26, 6, 6);
-
-        g2.dispose();
-
-        setIconImage(icon);
-    }
-
-    // ═══════════════════════════════════════════════════════════════════
-    // THEME SYSTEM
-    // ═══════════════════════════════════════════════════════════════════
-    private void applyTheme() {
-        if (isDarkMode) {
-            glassBg = DARK_BG;
-            glassPanel = DARK_PANEL;
-            glassLight = DARK_LIGHT;
-            glassBorder = DARK_BORDER;
-            textPrimary = DARK_TEXT;
-            textDim = DARK_TEXT_DIM;
-            msgReceivedBg = DARK_MSG_RECEIVED;
-        } else {
-            glassBg = LIGHT_BG;
-            glassPanel = LIGHT_PANEL;
-            glassLight = LIGHT_LIGHT;
-            glassBorder = LIGHT_BORDER;
-            textPrimary = LIGHT_TEXT;
-            textDim = LIGHT_TEXT_DIM;
-            msgReceivedBg = LIGHT_MSG_RECEIVED;
-        }
-    }
-
-    private void toggleTheme() {
-        isDarkMode = !isDarkMode;
-        applyTheme();
-
-        // Update theme button
-        themeToggleBtn.setText(isDarkMode ? "🌙" : "☀️");
-        themeToggleBtn.setToolTipText(isDarkMode ? "Switch to Light Mode" : "Switch to Dark Mode");
-
-        // Repaint everything
-        repaint();
-
-        // Show notification
-        addSystemMessage(isDarkMode ? "🌙 Đã chuyển sang Dark Mode" : "☀️ Đã chuyển sang Light Mode");
-    }
-
-    private String showStyledInputDialog() {
-        JPanel panel = new JPanel(new BorderLayout(10, 10));
-        panel.setBackground(new Color(30, 30, 45));
-        panel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
-
-        JLabel label = new JLabel("✨ Nhập tên của bạn:");
-        label.setForeground(Color.WHITE);
-        label.setFont(new Font("Segoe UI", Font.BOLD, 14));
-
-        JTextField field = new JTextField(15);
-        field.setBackground(new Color(50, 50, 70));
-        field.setForeground(Color.WHITE);
-        field.setCaretColor(ACCENT_PRIMARY);
-        field.setFont(new Font("Segoe UI", Font.PLAIN, 14));
-        field.setBorder(BorderFactory.createCompoundBorder(
-                BorderFactory.createLineBorder(ACCENT_PRIMARY, 2),
-                BorderFactory.createEmptyBorder(10, 15, 10, 15)));
-
-        panel.add(label, BorderLayout.NORTH);
-        panel.add(field, BorderLayout.CENTER);
-
-        UIManager.put("OptionPane.background", new Color(30, 30, 45));
-        UIManager.put("Panel.background", new Color(30, 30, 45));
-
-        int result = JOptionPane.showConfirmDialog(null, panel,
-                "💬 MiniChat - Liquid Glass",
-                JOptionPane.OK_CANCEL_OPTION,
-                JOptionPane.PLAIN_MESSAGE);
-
-        return (result == JOptionPane.OK_OPTION) ? field.getText().trim() : null;
-    }
-
-    private void createBackgroundImages() {
-        // Dark background
-        darkBgImage = new BufferedImage(800, 600, BufferedImage.TYPE_INT_ARGB);
-        Graphics2D g2 = darkBgImage.createGraphics();
-        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-
-        GradientPaint gradient = new GradientPaint(0, 0, new Color(15, 15, 35), 800, 600, new Color(30, 20, 50));
-        g2.setPaint(gradient);
-        g2.fillRect(0, 0, 800, 600);
-
-        g2.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.3f));
-        RadialGradientPaint orb1 = new RadialGradientPaint(new Point2D.Float(600, 150), 200,
-                new float[] { 0f, 1f }, new Color[] { new Color(138, 43, 226, 150), new Color(138, 43, 226, 0) });
-        g2.setPaint(orb1);
-        g2.fillOval(400, -50, 400, 400);
-
-        RadialGradientPaint orb2 = new RadialGradientPaint(new Point2D.Float(100, 500), 250,
-                new float[] { 0f, 1f }, new Color[] { new Color(0, 191, 255, 100), new Color(0, 191, 255, 0) });
-        g2.setPaint(orb2);
-        g2.fillOval(-100, 350, 500, 500);
-        g2.dispose();
-
-        // Light background
-        lightBgImage = new BufferedImage(800, 600, BufferedImage.TYPE_INT_ARGB);
-        g2 = lightBgImage.createGraphics();
-        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-
-        gradient = new GradientPaint(0, 0, new Color(235, 240, 255), 800, 600, new Color(245, 245, 255));
-        g2.setPaint(gradient);
-        g2.fillRect(0, 0, 800, 600);
-
-        g2.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.2f));
-        orb1 = new RadialGradientPaint(new Point2D.Float(600, 150), 200,
-                new float[] { 0f, 1f }, new Color[] { new Color(138, 43, 226, 80), new Color(138, 43, 226, 0) });
-        g2.setPaint(orb1);
-        g2.fillOval(400, -50, 400, 400);
-
-        orb2 = new RadialGradientPaint(new Point2D.Float(100, 500), 250,
-                new float[] { 0f, 1f }, new Color[] { new Color(0, 191, 255, 60), new Color(0, 191, 255, 0) });
-        g2.setPaint(orb2);
-        g2.fillOval(-100, 350, 500, 500);
-        g2.dispose();
-    }
-
-    // ═══════════════════════════════════════════════════════════════════
-    // WINDOW SETUP
-    // ═══════════════════════════════════════════════════════════════════
-    private void setupWindow() {
-        setTitle("MiniChat - Liquid Glass");
-        setSize(900, 700);
-        setUndecorated(true);
-        setLocationRelativeTo(null);
-        setDefaultCloseOperation(EXIT_ON_CLOSE);
-
-        mainContentPane = new JPanel(new BorderLayout()) {
-            @Override
-            protected void paintComponent(Graphics g) {
-                super.paintComponent(g);
-                BufferedImage bg = isDarkMode ? darkBgImage : lightBgImage;
-                if (bg != null) {
-                    g.drawImage(bg, 0, 0, getWidth(), getHeight(), null);
-                }
-            }
-        };
-        mainContentPane.setOpaque(false);
-        setContentPane(mainContentPane);
-
-        setShape(new RoundRectangle2D.Double(0, 0, getWidth(), getHeight(), 25, 25));
-
-        addComponentListener(new ComponentAdapter() {
-            @Override
-            public void componentResized(ComponentEvent e) {
-                setShape(new RoundRectangle2D.Double(0, 0, getWidth(), getHeight(), 25, 25));
-            }
-        });
-    }
-
-    // ═══════════════════════════════════════════════════════════════════
-    // CUSTOM TITLE BAR
-    // ═══════════════════════════════════════════════════════════════════
-    private void setupTitleBar() {
-        JPanel titleBar = new JPanel(new BorderLayout()) {
-            @Override
-            protected void paintComponent(Graphics g) {
-                Graphics2D g2 = (Graphics2D) g.create();
-                g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-
-                Path2D path = new Path2D.Float();
-                int w = getWidth(), h = getHeight();
-                path.moveTo(25, 0);
-                path.lineTo(w - 25, 0);
-                path.quadTo(w, 0, w, 25);
-                path.lineTo(w, h);
-                path.lineTo(0, h);
-                path.lineTo(0, 25);
-                path.quadTo(0, 0, 25, 0);
-                path.closePath();
-
-                g2.setColor(glassPanel);
-                g2.fill(path);
-                g2.setColor(glassBorder);
-                g2.setStroke(new BasicStroke(1.5f));
-                g2.draw(path);
-                g2.dispose();
-            }
-        };
-        titleBar.setOpaque(false);
-        titleBar.setPreferredSize(new Dimension(getWidth(), 50));
-
-        // Left side - Logo and title
-        JPanel leftPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 15, 8));
-        leftPanel.setOpaque(false);
-
-        // Custom drawn chat icon instead of emoji
-        JPanel logo = new JPanel() {
-            @Override
-            protected void paintComponent(Graphics g) {
-                Graphics2D g2 = (Graphics2D) g.create();
-                g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-                // Chat bubble
-                g2.setColor(ACCENT_PRIMARY);
-                g2.fillRoundRect(2, 4, 20, 14, 8, 8);
-                // Bubble tail
-                int[] xp = { 5, 2, 8 };
-                int[] yp = { 16, 22, 18 };
-                g2.fillPolygon(xp, yp, 3);
-                // Dots
-                g2.setColor(Color.WHITE);
-                g2.fillOval(6, 9, 4, 4);
-                g2.fillOval(11, 9, 4, 4);
-                g2.fillOval(16, 9, 4, 4);
-                g2.dispose();
-            }
-
-            @Override
-            public Dimension getPreferredSize() {
-                return new Dimension(26, 26);
-            }
-        };
-        logo.setOpaque(false);
-
-        JLabel title = new JLabel("MiniChat") {
-            @Override
-            protected void paintComponent(Graphics g) {
-                g.setColor(textPrimary);
-                g.setFont(getFont());
-                g.drawString(getText(), 0, g.getFontMetrics().getAscent());
-            }
-        };
-        title.setFont(new Font("Segoe UI", Font.BOLD, 18));
-
-        JLabel subtitle = new JLabel("Liquid Glass");
-        subtitle.setFont(new Font("Segoe UI", Font.ITALIC, 12));
-        subtitle.setForeground(ACCENT_SECONDARY);
-
-        leftPanel.add(logo);
-        leftPanel.add(title);
-        leftPanel.add(subtitle);
-
-        // Right side - Theme toggle + Window controls
-        JPanel controls = new JPanel(new FlowLayout(FlowLayout.RIGHT, 8, 10));
-        controls.setOpaque(false);
-
-        // Theme toggle button - use text instead of emoji
-        themeToggleBtn = createThemeButton();
-        themeToggleBtn.setToolTipText("Switch to Light Mode");
-        themeToggleBtn.addActionListener(e -> toggleTheme());
-
-        JButton minimizeBtn = createWindowButton("min");
-        JButton maximizeBtn = createWindowButton("max");
-        JButton closeBtn = createWindowButton("close");
-
-        minimizeBtn.addActionListener(e -> setState(Frame.ICONIFIED));
-        maximizeBtn.addActionListener(e -> {
-            if (getExtendedState() == Frame.MAXIMIZED_BOTH) {
-                setExtendedState(Frame.NORMAL);
-            } else {
-                setExtendedState(Frame.MAXIMIZED_BOTH);
-            }
-        });
-        closeBtn.addActionListener(e -> {
-            disconnect();
-            System.exit(0);
-        });
-
-        controls.add(themeToggleBtn);
-        controls.add(minimizeBtn);
-        controls.add(maximizeBtn);
-        controls.add(closeBtn);
-
-        titleBar.add(leftPanel, BorderLayout.WEST);
-        titleBar.add(controls, BorderLayout.EAST);
-
-        // Dragging
-        titleBar.addMouseListener(new MouseAdapter() {
-            public void mousePressed(MouseEvent e) {
-                dragOffset = e.getPoint();
-            }
-        });
-        titleBar.addMouseMotionListener(new MouseMotionAdapter() {
-            public void mouseDragged(MouseEvent e) {
-                Point current = e.getLocationOnScreen();
-                setLocation(current.x - dragOffset.x, current.y - dragOffset.y);
-            }
-        });
-
-        add(titleBar, BorderLayout.NORTH);
-    }
-
-    private JButton createGlassButton(String text) {
-        JButton btn = new JButton(text) {
-            @Override
-            protected void paintComponent(Graphics g) {
-                Graphics2D g2 = (Graphics2D) g.create();
-                g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-
-                if (getModel().isRollover()) {
-                    g2.setColor(glassLight);
-                    g2.fillRoundRect(0, 0, getWidth(), getHeight(), 10, 10);
-                }
-
-                g2.setColor(getForeground());
-                g2.setFont(getFont());
-                FontMetrics fm = g2.getFontMetrics();
-                int x = (getWidth() - fm.stringWidth(getText())) / 2;
-                int y = (getHeight() + fm.getAscent() - fm.getDescent()) / 2;
-                g2.drawString(getText(), x, y);
-                g2.dispose();
-            }
-        };
-        btn.setOpaque(false);
-        btn.setContentAreaFilled(false);
-        btn.setBorderPainted(false);
-        btn.setFocusPainted(false);
-        btn.setForeground(textPrimary);
-        btn.setFont(new Font("Segoe UI", Font.PLAIN, 14));
-        btn.setPreferredSize(new Dimension(35, 30));
-        btn.setCursor(new Cursor(Cursor.HAND_CURSOR));
-        return btn;
-    }
-
-    // Theme toggle button with sun/moon icon
-    private JButton createThemeButton() {
-        JButton btn = new JButton() {
-            @Override
-            protected void paintComponent(Graphics g) {
-                Graphics2D g2 = (Graphics2D) g.create();
-                g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-
-                if (getModel().isRollover()) {
-                    g2.setColor(glassLight);
-                    g2.fillRoundRect(0, 0, getWidth(), getHeight(), 10, 10);
-                }
-
-                int cx = getWidth() / 2;
-                int cy = getHeight() / 2;
-
-                if (isDarkMode) {
-                    // Draw moon
-                    g2.setColor(new Color(255, 220, 100));
-                    g2.fillOval(cx - 8, cy - 8, 16, 16);
-                    g2.setColor(glassPanel);
-                    g2.fillOval(cx - 4, cy - 10, 14, 14);
-                } else {
-                    // Draw sun
-                    g2.setColor(new Color(255, 180, 50));
-                    g2.fillOval(cx - 6, cy - 6, 12, 12);
-                    g2.setStroke(new BasicStroke(2));
-                    for (int i = 0; i < 8; i++) {
-                        double angle = i * Math.PI / 4;
-                        int x1 = cx + (int) (10 * Math.cos(angle));
-                        int y1 = cy + (int) (10 * Math.sin(angle));
-                        int x2 = cx + (int) (14 * Math.cos(angle));
-                        int y2 = cy + (int) (14 * Math.sin(angle));
-                        g2.drawLine(x1, y1, x2, y2);
-                    }
-                }
-                g2.dispose();
-            }
-        };
-        btn.setOpaque(false);
-        btn.setContentAreaFilled(false);
-        btn.setBorderPainted(false);
-        btn.setFocusPainted(false);
-        btn.setPreferredSize(new Dimension(35, 30));
-        btn.setCursor(new Cursor(Cursor.HAND_CURSOR));
-        return btn;
-    }
-
-    // Window control buttons (minimize, maximize, close)
-    private JButton createWindowButton(String type) {
-        JButton btn = new JButton() {
-            @Override
-            protected void paintComponent(Graphics g) {
-                Graphics2D g2 = (Graphics2D) g.create();
-                g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-
-                Color hoverColor = type.equals("close") ? new Color(220, 50, 50) : glassLight;
-                if (getModel().isRollover()) {
-                    g2.setColor(hoverColor);
-                    g2.fillRoundRect(0, 0, getWidth(), getHeight(), 8, 8);
-                }
-
-                int cx = getWidth() / 2;
-                int cy = getHeight() / 2;
-                Color iconColor = type.equals("close")
-                        ? (getModel().isRollover() ? Color.WHITE : new Color(255, 100, 100))
-                        : textPrimary;
-                g2.setColor(iconColor);
-                g2.setStroke(new BasicStroke(2, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
-
-                switch (type) {
-                    case "min":
-                        g2.drawLine(cx - 5, cy, cx + 5, cy);
-                        break;
-                    case "max":
-                        g2.drawRect(cx - 5, cy - 5, 10, 10);
-                        break;
-                    case "close":
-                        g2.drawLine(cx - 4, cy - 4, cx + 4, cy + 4);
-                        g2.drawLine(cx + 4, cy - 4, cx - 4, cy + 4);
-                        break;
-                }
-                g2.dispose();
-            }
-        };
-        btn.setOpaque(false);
-        btn.setContentAreaFilled(false);
-        btn.setBorderPainted(false);
-        btn.setFocusPainted(false);
-        btn.setPreferredSize(new Dimension(35, 30));
-        btn.setCursor(new Cursor(Cursor.HAND_CURSOR));
-        return btn;
-    }
-
-    // ═══════════════════════════════════════════════════════════════════
-    // MAIN CONTENT (Sidebar + Chat)
-    // ═══════════════════════════════════════════════════════════════════
-    private void setupMainContent() {
-        JPanel mainContent = new JPanel(new BorderLayout(10, 0));
-        mainContent.setOpaque(false);
-        mainContent.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
-
-        sidebarPanel = createSidebar();
-        chatAreaPanel = createChatArea();
-
-        mainContent.add(sidebarPanel, BorderLayout.WEST);
-        mainContent.add(chatAreaPanel, BorderLayout.CENTER);
-
-        add(mainContent, BorderLayout.CENTER);
-    }
-
-    private JPanel createSidebar() {
-        JPanel sidebar = new JPanel(new BorderLayout(0, 10)) {
-            @Override
-            protected void paintComponent(Graphics g) {
-                Graphics2D g2 = (Graphics2D) g.create();
-                g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-                g2.setColor(glassPanel);
-                g2.fillRoundRect(0, 0, getWidth(), getHeight(), 15, 15);
-                g2.setColor(glassBorder);
-                g2.setStroke(new BasicStroke(1.5f));
-                g2.drawRoundRect(0, 0, getWidth() - 1, getHeight() - 1, 15, 15);
-                g2.dispose();
-            }
-        };
-        sidebar.setOpaque(false);
-        sidebar.setPreferredSize(new Dimension(200, 0));
-        sidebar.setBorder(BorderFactory.createEmptyBorder(15, 10, 15, 10));
-
-        // Rooms section
-        JPanel roomsSection = new JPanel(new BorderLayout(0, 8));
-        roomsSection.setOpaque(false);
-
-        JLabel roomsTitle = new JLabel("📁 ROOMS");
-        roomsTitle.setForeground(ACCENT_SECONDARY);
-        roomsTitle.setFont(new Font("Segoe UI", Font.BOLD, 12));
-
-        roomListModel = new DefaultListModel<>();
-        roomListModel.addElement("General");
-        roomListModel.addElement("Gaming");
-        roomListModel.addElement("Music");
-        roomListModel.addElement("Random");
-
-        roomList = new JList<>(roomListModel);
-        roomList.setOpaque(false);
-        roomList.setBackground(new Color(0, 0, 0, 0));
-        roomList.setFont(new Font("Segoe UI", Font.PLAIN, 13));
-        roomList.setSelectionBackground(ACCENT_PRIMARY);
-        roomList.setCellRenderer(new RoomListCellRenderer());
-        roomList.addListSelectionListener(e -> {
-            if (!e.getValueIsAdjusting() && roomList.getSelectedValue() != null) {
-                joinRoom(roomList.getSelectedValue());
-            }
-        });
-
-        JScrollPane roomScroll = new JScrollPane(roomList);
-        roomScroll.setOpaque(false);
-        roomScroll.getViewport().setOpaque(false);
-        roomScroll.setBorder(null);
-        roomScroll.setPreferredSize(new Dimension(180, 150));
-
-        roomsSection.add(roomsTitle, BorderLayout.NORTH);
-        roomsSection.add(roomScroll, BorderLayout.CENTER);
-
-        JButton addRoomBtn = createAccentButton("+ New Room");
-        addRoomBtn.addActionListener(e -> {
-            String roomName = JOptionPane.showInputDialog(this, "Tên phòng mới:");
-            if (roomName != null && !roomName.trim().isEmpty()) {
-                out.println("/create " + roomName.trim());
-            }
-        });
-        roomsSection.add(addRoomBtn, BorderLayout.SOUTH);
-
-        // Online users section
-        JPanel usersSection = new JPanel(new BorderLayout(0, 8));
-        usersSection.setOpaque(false);
-
-        JLabel usersTitle = new JLabel("👥 ONLINE");
-        usersTitle.setForeground(ACCENT_SECONDARY);
-        usersTitle.setFont(new Font("Segoe UI", Font.BOLD, 12));
-
-        userListModel = new DefaultListModel<>();
-        userList = new JList<>(userListModel);
-        userList.setOpaque(false);
-        userList.setBackground(new Color(0, 0, 0, 0));
-        userList.setFont(new Font("Segoe UI", Font.PLAIN, 13));
-        userList.setCellRenderer(new UserListCellRenderer());
-        userList.addMouseListener(new MouseAdapter() {
-            @Override
-            public void mouseClicked(MouseEvent e) {
-                if (e.getClickCount() == 2) {
-                    String selectedUser = userList.getSelectedValue();
-                    if (selectedUser != null && !selectedUser.split(":")[0].equals(username)) {
-                        String targetUser = selectedUser.split(":")[0];
-                        String msg = JOptionPane.showInputDialog(ChatClientGUI.this,
-                                "Nhắn riêng cho " + targetUser + ":");
-                        if (msg != null && !msg.trim().isEmpty()) {
-                            out.println("/pm " + targetUser + " " + msg);
-                        }
-                    }
-                }
-            }
-        });
-
-        JScrollPane userScroll = new JScrollPane(userList);
-        userScroll.setOpaque(false);
-        userScroll.getViewport().setOpaque(false);
-        userScroll.setBorder(null);
-
-        usersSection.add(usersTitle, BorderLayout.NORTH);
-        usersSection.add(userScroll, BorderLayout.CENTER);
-
-        JPanel sectionsPanel = new JPanel(new GridLayout(2, 1, 0, 15));
-        sectionsPanel.setOpaque(false);
-        sectionsPanel.add(roomsSection);
-        sectionsPanel.add(usersSection);
-
-        sidebar.add(sectionsPanel, BorderLayout.CENTER);
-
-        return sidebar;
-    }
-
-    private JPanel createChatArea() {
-        JPanel chatArea = new JPanel(new BorderLayout(0, 10)) {
-            @Override
-            protected void paintComponent(Graphics g) {
-                Graphics2D g2 = (Graphics2D) g.create();
-                g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-                g2.setColor(glassPanel);
-                g2.fillRoundRect(0, 0, getWidth(), getHeight(), 15, 15);
-                g2.setColor(glassBorder);
-                g2.setStroke(new BasicStroke(1.5f));
-                g2.drawRoundRect(0, 0, getWidth() - 1, getHeight() - 1, 15, 15);
-                g2.dispose();
-            }
-        };
-        chatArea.setOpaque(false);
-        chatArea.setBorder(BorderFactory.createEmptyBorder(15, 15, 15, 15));
-
-        // Header
-        JPanel header = new JPanel(new BorderLayout());
-        header.setOpaque(false);
-
-        currentRoomLabel = new JLabel("💬 Chọn một phòng để bắt đầu chat") {
-            @Override
-            protected void paintComponent(Graphics g) {
-                g.setColor(textPrimary);
-                g.setFont(getFont());
-                g.drawString(getText(), 0, g.getFontMetrics().getAscent());
-            }
-        };
-        currentRoomLabel.setFont(new Font("Segoe UI", Font.BOLD, 16));
-        header.add(currentRoomLabel, BorderLayout.WEST);
-
-        // Chat messages panel
-        chatPanel = new JPanel();
-        chatPanel.setLayout(new BoxLayout(chatPanel, BoxLayout.Y_AXIS));
-        chatPanel.setOpaque(false);
-
-        chatScrollPane = new JScrollPane(chatPanel);
-        chatScrollPane.setOpaque(false);
-        chatScrollPane.getViewport().setOpaque(false);
-        chatScrollPane.setBorder(null);
-        chatScrollPane.setHorizontalScrollBarPolicy(ScrollPaneConstants.HORIZONTAL_SCROLLBAR_NEVER);
-        chatScrollPane.getVerticalScrollBar().setUnitIncrement(16);
-
-        JPanel inputArea = createInputArea();
-
-        chatArea.add(header, BorderLayout.NORTH);
-        chatArea.add(chatScrollPane, BorderLayout.CENTER);
-        chatArea.add(inputArea, BorderLayout.SOUTH);
-
-        addSystemMessage("🎉 Chào mừng đến MiniChat Liquid Glass!");
-        addSystemMessage("👆 Chọn một phòng từ sidebar để bắt đầu chat");
-        addSystemMessage("🌙 Nhấn nút mặt trăng/mặt trời để đổi theme!");
-
-        return chatArea;
-    }
-
-    private JPanel createInputArea() {
-        JPanel inputPanel = new JPanel(new BorderLayout(10, 0));
-        inputPanel.setOpaque(false);
-
-        inputField = new JTextField() {
-            @Override
-            protected void paintComponent(Graphics g) {
-                Graphics2D g2 = (Graphics2D) g.create();
-                g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-                g2.setColor(glassPanel);
-                g2.fillRoundRect(0, 0, getWidth(), getHeight(), 25, 25);
-                g2.setColor(glassBorder);
-                g2.setStroke(new BasicStroke(1.5f));
-                g2.drawRoundRect(0, 0, getWidth() - 1, getHeight() - 1, 25, 25);
-                super.paintComponent(g);
-                g2.dispose();
-            }
-        };
-        inputField.setOpaque(false);
-        inputField.setForeground(textPrimary);
-        inputField.setCaretColor(ACCENT_PRIMARY);
-        inputField.setFont(new Font("Segoe UI", Font.PLAIN, 14));
-        inputField.setBorder(BorderFactory.createEmptyBorder(12, 20, 12, 20));
-        inputField.addActionListener(e -> sendMessage());
-
-        sendButton = new JButton("Send") {
-            @Override
-            protected void paintComponent(Graphics g) {
-                Graphics2D g2 = (Graphics2D) g.create();
-                g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-
-                GradientPaint gradient = new GradientPaint(0, 0, ACCENT_GRADIENT_1, getWidth(), getHeight(),
-                        ACCENT_GRADIENT_2);
-                g2.setPaint(gradient);
-                g2.fillRoundRect(0, 0, getWidth(), getHeight(), 25, 25);
-
-                if (getModel().isRollover()) {
-                    g2.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.3f));
-                    g2.setColor(Color.WHITE);
-                    g2.fillRoundRect(0, 0, getWidth(), getHeight(), 25, 25);
-                }
-
-                g2.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 1f));
-                g2.setColor(Color.WHITE);
-                g2.setFont(getFont());
-                FontMetrics fm = g2.getFontMetrics();
-                int x = (getWidth() - fm.stringWidth(getText())) / 2;
-                int y = (getHeight() + fm.getAscent() - fm.getDescent()) / 2;
-                g2.drawString(getText(), x, y);
-                g2.dispose();
-            }
-        };
-        sendButton.setOpaque(false);
-        sendButton.setContentAreaFilled(false);
-        sendButton.setBorderPainted(false);
-        sendButton.setFocusPainted(false);
-        sendButton.setPreferredSize(new Dimension(80, 45));
-        sendButton.setFont(new Font("Segoe UI", Font.BOLD, 14));
-        sendButton.setCursor(new Cursor(Cursor.HAND_CURSOR));
-        sendButton.addActionListener(e -> sendMessage());
-
-        // File attach button
-        JButton fileBtn = new JButton() {
-            @Override
-            protected void paintComponent(Graphics g) {
-                Graphics2D g2 = (Graphics2D) g.create();
-                g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-
-                if (getModel().isRollover()) {
-                    g2.setColor(glassLight);
-                    g2.fillRoundRect(0, 0, getWidth(), getHeight(), 15, 15);
-                }
-
-                // Draw paperclip icon
-                g2.setColor(ACCENT_PRIMARY);
-                g2.setStroke(new BasicStroke(2.5f, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
-                int cx = getWidth() / 2;
-                int cy = getHeight() / 2;
-
-                // Paperclip shape
-                g2.drawArc(cx - 4, cy - 10, 8, 10, 0, 180);
-                g2.drawLine(cx - 4, cy - 5, cx - 4, cy + 5);
-                g2.drawArc(cx - 6, cy + 2, 12, 10, 180, 180);
-                g2.drawLine(cx + 6, cy + 7, cx + 6, cy - 2);
-                g2.drawArc(cx + 2, cy - 5, 8, 8, 0, 180);
-
-                g2.dispose();
-            }
-        };
-        fileBtn.setOpaque(false);
-        fileBtn.setContentAreaFilled(false);
-        fileBtn.setBorderPainted(false);
-        fileBtn.setFocusPainted(false);
-        fileBtn.setPreferredSize(new Dimension(45, 45));
-        fileBtn.setCursor(new Cursor(Cursor.HAND_CURSOR));
-        fileBtn.setToolTipText("Attach file");
-        fileBtn.addActionListener(e -> selectAndSendFile());
-
-        // Button panel for file + send
-        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 5, 0));
-        buttonPanel.setOpaque(false);
-        buttonPanel.add(fileBtn);
-        buttonPanel.add(sendButton);
-
-        inputPanel.add(inputField, BorderLayout.CENTER);
-        inputPanel.add(buttonPanel, BorderLayout.EAST);
-
-        return inputPanel;
-    }
-
-    // File selection and sending
-    private void selectAndSendFile() {
-        if (!connected || currentRoom == null) {
-            addSystemMessage("! Join a room first to send files");
-            return;
-        }
-
-        JFileChooser fileChooser = new JFileChooser();
-        fileChooser.setDialogTitle("Select file to send");
-
-        int result = fileChooser.showOpenDialog(this);
-        if (result == JFileChooser.APPROVE_OPTION) {
-            java.io.File file = fileChooser.getSelectedFile();
-
-            // Check file size (limit to 5MB)
-            if (file.length() > 5 * 1024 * 1024) {
-                addSystemMessage("! File too large. Max size: 5MB");
-                return;
-            }
-
-            try {
-                // Read file and encode to Base64
-                byte[] fileBytes = java.nio.file.Files.readAllBytes(file.toPath());
-                String base64 = java.util.Base64.getEncoder().encodeToString(fileBytes);
-
-                // Send file: /file filename:size:base64data
-                String fileInfo = file.getName() + ":" + file.length() + ":" + base64;
-                out.println("/file " + fileInfo);
-
-                addSystemMessage(">> Sending file: " + file.getName() + " (" + formatFileSize(file.length()) + ")");
-
-            } catch (Exception ex) {
-                addSystemMessage("! Error reading file: " + ex.getMessage());
-            }
-        }
-    }
-
-    private String formatFileSize(long bytes) {
-        if (bytes < 1024)
-            return bytes + " B";
-        if (bytes < 1024 * 1024)
-            return String.format("%.1f KB", bytes / 1024.0);
-        return String.format("%.1f MB", bytes / (1024.0 * 1024.0));
-    }
-
-    // Handle received file - show download option
-    private void handleReceivedFile(String sender, String fileData) {
-        // Parse filename:size:base64data
-        String[] parts = fileData.split(":", 3);
-        if (parts.length < 3)
-            return;
-
-        String fileName = parts[0];
-        long fileSize = Long.parseLong(parts[1]);
-        String base64Data = parts[2];
-
-        boolean isSent = sender.equals(username);
-
-        // Create file message bubble with download button
-        JPanel wrapper = new JPanel(new FlowLayout(isSent ? FlowLayout.RIGHT : FlowLayout.LEFT, 0, 5));
-        wrapper.setOpaque(false);
-        wrapper.setMaximumSize(new Dimension(Integer.MAX_VALUE, 100));
-
-        JPanel bubble = new JPanel() {
-            @Override
-            protected void paintComponent(Graphics g) {
-                Graphics2D g2 = (Graphics2D) g.create();
-                g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-                Color bgColor = isSent ? MSG_SENT_BG : msgReceivedBg;
-                g2.setColor(bgColor);
-                g2.fillRoundRect(0, 0, getWidth(), getHeight(), 18, 18);
-                g2.setColor(new Color(255, 255, 255, 30));
-                g2.drawRoundRect(0, 0, getWidth() - 1, getHeight() - 1, 18, 18);
-                g2.dispose();
-            }
-        };
-        bubble.setOpaque(false);
-        bubble.setLayout(new BorderLayout(8, 4));
-        bubble.setBorder(BorderFactory.createEmptyBorder(10, 14, 10, 14));
-
-        // Sender name
-        if (!isSent) {
-            JLabel senderLabel = new JLabel(sender);
-            senderLabel.setForeground(ACCENT_SECONDARY);
-            senderLabel.setFont(new Font("Segoe UI", Font.BOLD, 11));
-            bubble.add(senderLabel, BorderLayout.NORTH);
-        }
-
-        // File info panel
-        JPanel filePanel = new JPanel(new BorderLayout(10, 0));
-        filePanel.setOpaque(false);
-
-        // File icon
-        JPanel fileIcon = new JPanel() {
-            @Override
-            protected void paintComponent(Graphics g) {
-                Graphics2D g2 = (Graphics2D) g.create();
-                g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-                // Draw file icon
-                g2.setColor(ACCENT_PRIMARY);
-                g2.fillRoundRect(5, 2, 20, 26, 4, 4);
-                // Folded corner
-                g2.setColor(new Color(255, 255, 255, 150));
-                int[] xp = { 17, 25, 25 };
-                int[] yp = { 2, 2, 10 };
-                g2.fillPolygon(xp, yp, 3);
-                g2.dispose();
-            }
-
-            @Override
-            public Dimension getPreferredSize() {
-                return new Dimension(30, 30);
-            }
-        };
-        fileIcon.setOpaque(false);
-
-        // File name and size
-        JPanel fileInfo = new JPanel(new GridLayout(2, 1));
-        fileInfo.setOpaque(false);
-        JLabel nameLabel = new JLabel(fileName);
-        nameLabel.setForeground(isSent ? Color.WHITE : textPrimary);
-        nameLabel.setFont(new Font("Segoe UI", Font.BOLD, 13));
-        JLabel sizeLabel = new JLabel(formatFileSize(fileSize));
-        sizeLabel.setForeground(isSent ? new Color(200, 200, 255) : textDim);
-        sizeLabel.setFont(new Font("Segoe UI", Font.PLAIN, 11));
-        fileInfo.add(nameLabel);
-        fileInfo.add(sizeLabel);
-
-        // Download button
-        JButton downloadBtn = new JButton("Save") {
-            @Override
-            protected void paintComponent(Graphics g) {
-                Graphics2D g2 = (Graphics2D) g.create();
-                g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-                g2.setColor(ACCENT_PRIMARY);
-                g2.fillRoundRect(0, 0, getWidth(), getHeight(), 12, 12);
-                if (getModel().isRollover()) {
-                    g2.setColor(new Color(255, 255, 255, 50));
-                    g2.fillRoundRect(0, 0, getWidth(), getHeight(), 12, 12);
-                }
-                g2.setColor(Color.WHITE);
-                g2.setFont(getFont());
-                FontMetrics fm = g2.getFontMetrics();
-                int x = (getWidth() - fm.stringWidth(getText())) / 2;
-                int y = (getHeight() + fm.getAscent() - fm.getDescent()) / 2;
-                g2.drawString(getText(), x, y);
-                g2.dispose();
-            }
-        };
-        downloadBtn.setOpaque(false);
-        downloadBtn.setContentAreaFilled(false);
-        downloadBtn.setBorderPainted(false);
-        downloadBtn.setFocusPainted(false);
-        downloadBtn.setFont(new Font("Segoe UI", Font.BOLD, 11));
-        downloadBtn.setPreferredSize(new Dimension(50, 25));
-        downloadBtn.setCursor(new Cursor(Cursor.HAND_CURSOR));
-        downloadBtn.addActionListener(e -> saveFile(fileName, base64Data));
-
-        filePanel.add(fileIcon, BorderLayout.WEST);
-        filePanel.add(fileInfo, BorderLayout.CENTER);
-        filePanel.add(downloadBtn, BorderLayout.EAST);
-
-        bubble.add(filePanel, BorderLayout.CENTER);
-
-        wrapper.add(bubble);
-        chatPanel.add(wrapper);
-        chatPanel.revalidate();
-        scrollToBottom();
-    }
-
-    private void saveFile(String fileName, String base64Data) {
-        JFileChooser fileChooser = new JFileChooser();
-        fileChooser.setSelectedFile(new java.io.File(fileName));
-        fileChooser.setDialogTitle("Save file as");
-
-        int result = fileChooser.showSaveDialog(this);
-        if (result == JFileChooser.APPROVE_OPTION) {
-            try {
-                byte[] fileBytes = java.util.Base64.getDecoder().decode(base64Data);
-                java.nio.file.Files.write(fileChooser.getSelectedFile().toPath(), fileBytes);
-                addSystemMessage("[OK] File saved: " + fileChooser.getSelectedFile().getName());
-            } catch (Exception ex) {
-                addSystemMessage("! Error saving file: " + ex.getMessage());
-            }
-        }
-    }
-
-    private JButton createAccentButton(String text) {
-        JButton btn = new JButton(text) {
-            @Override
-            protected void paintComponent(Graphics g) {
-                Graphics2D g2 = (Graphics2D) g.create();
-                g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-                g2.setColor(glassLight);
-                g2.fillRoundRect(0, 0, getWidth(), getHeight(), 15, 15);
-                if (getModel().isRollover()) {
-                    g2.setColor(ACCENT_PRIMARY);
-                    g2.setStroke(new BasicStroke(2));
-                    g2.drawRoundRect(1, 1, getWidth() - 3, getHeight() - 3, 15, 15);
-                }
-                g2.setColor(textPrimary);
-                g2.setFont(getFont());
-                FontMetrics fm = g2.getFontMetrics();
-                int x = (getWidth() - fm.stringWidth(getText())) / 2;
-                int y = (getHeight() + fm.getAscent() - fm.getDescent()) / 2;
-                g2.drawString(getText(), x, y);
-                g2.dispose();
-            }
-        };
-        btn.setOpaque(false);
-        btn.setContentAreaFilled(false);
-        btn.setBorderPainted(false);
-        btn.setFocusPainted(false);
-        btn.setFont(new Font("Segoe UI", Font.PLAIN, 12));
-        btn.setPreferredSize(new Dimension(btn.getPreferredSize().width, 35));
-        btn.setCursor(new Cursor(Cursor.HAND_CURSOR));
-        return btn;
-    }
-
-    // ═══════════════════════════════════════════════════════════════════
-    // STATUS BAR
-    // ═══════════════════════════════════════════════════════════════════
-    private void setupStatusBar() {
-        JPanel statusBar = new JPanel(new FlowLayout(FlowLayout.LEFT, 15, 8)) {
-            @Override
-            protected void paintComponent(Graphics g) {
-                Graphics2D g2 = (Graphics2D) g.create();
-                g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-
-                Path2D path = new Path2D.Float();
-                int w = getWidth(), h = getHeight();
-                path.moveTo(0, 0);
-                path.lineTo(w, 0);
-                path.lineTo(w, h - 25);
-                path.quadTo(w, h, w - 25, h);
-                path.lineTo(25, h);
-                path.quadTo(0, h, 0, h - 25);
-                path.closePath();
-
-                g2.setColor(glassPanel);
-                g2.fill(path);
-                g2.setColor(glassBorder);
-                g2.setStroke(new BasicStroke(1.5f));
-                g2.draw(path);
-                g2.dispose();
-            }
-        };
-        statusBar.setOpaque(false);
-        statusBar.setPreferredSize(new Dimension(getWidth(), 35));
-
-        JLabel userIcon = new JLabel("👤");
-        JLabel userLabel = new JLabel(username) {
-            @Override
-            protected void paintComponent(Graphics g) {
-                g.setColor(textPrimary);
-                g.setFont(getFont());
-                g.drawString(getText(), 0, g.getFontMetrics().getAscent());
-            }
-        };
-        userLabel.setFont(new Font("Segoe UI", Font.BOLD, 12));
-
-        JLabel separator = new JLabel("  |  ");
-        separator.setForeground(textDim);
-
-        statusLabel = new JLabel("● Đang kết nối...");
-        statusLabel.setForeground(new Color(255, 165, 0));
-        statusLabel.setFont(new Font("Segoe UI", Font.PLAIN, 12));
-
-        statusBar.add(userIcon);
-        statusBar.add(userLabel);
-        statusBar.add(separator);
-        statusBar.add(statusLabel);
-
-        add(statusBar, BorderLayout.SOUTH);
-    }
-
-    // ═══════════════════════════════════════════════════════════════════
-    // NETWORK
-    // ═══════════════════════════════════════════════════════════════════
-    private void connectToServer() {
-        new Thread(() -> {
-            try {
-                socket = new Socket(SERVER_IP, SERVER_PORT);
-                out = new PrintWriter(socket.getOutputStream(), true);
-                in = new BufferedReader(new InputStreamReader(socket.getInputStream(), "UTF-8"));
-                connected = true;
-
-                SwingUtilities.invokeLater(() -> {
-                    statusLabel.setText("● Đã kết nối");
-                    statusLabel.setForeground(ONLINE_DOT);
-                });
-
-                out.println("USERNAME:" + username);
-
-                String message;
-                while ((message = in.readLine()) != null) {
-                    handleServerMessage(message);
-                }
-
-            } catch (Exception e) {
-                SwingUtilities.invokeLater(() -> {
-                    statusLabel.setText("● Không thể kết nối");
-                    statusLabel.setForeground(new Color(255, 100, 100));
-                    addSystemMessage("❌ Không thể kết nối. Hãy chạy Server trước!");
-                });
-            }
-        }).start();
-    }
-
-    private void handleServerMessage(String message) {
-        SwingUtilities.invokeLater(() -> {
-            if (message.startsWith("ROOMS:")) {
-                updateRoomList(message.substring(6));
-            } else if (message.startsWith("ONLINE:")) {
-                updateOnlineUsers(message.substring(7));
-            } else if (message.startsWith("MSG:")) {
-                String[] parts = message.substring(4).split(":", 3);
-                if (parts.length >= 3) {
-                    String room = parts[0];
-                    String sender = parts[1];
-                    String content = parts[2];
-                    if (room.equals(currentRoom)) {
-                        if (sender.equals(username)) {
-                            addSentMessage(content);
-                        } else {
-                            addReceivedMessage(sender, content);
-                        }
-                    }
-                }
-            } else if (message.startsWith("SYSTEM:")) {
-                addSystemMessage(message.substring(7));
-            } else if (message.startsWith("JOINED:")) {
-                String room = message.substring(7);
-                currentRoom = room;
-                currentRoomLabel.setText("💬 #" + room);
-                chatPanel.removeAll();
-                chatPanel.revalidate();
-                chatPanel.repaint();
-                addSystemMessage("✅ Đã tham gia phòng " + room);
-            } else if (message.startsWith("PM:")) {
-                String[] parts = message.substring(3).split(":", 2);
-                if (parts.length >= 2) {
-                    addPrivateMessage(parts[0], parts[1], false);
-                }
-            } else if (message.startsWith("PM_SENT:")) {
-                String[] parts = message.substring(8).split(":", 2);
-                if (parts.length >= 2) {
-                    addPrivateMessage(parts[0], parts[1], true);
-                }
-            } else if (message.startsWith("ROOM_CREATED:")) {
-                String newRoom = message.substring(13);
-                if (!roomListModel.contains(newRoom)) {
-                    roomListModel.addElement(newRoom);
-                }
-                addSystemMessage("[+] New room: " + newRoom);
-            } else if (message.startsWith("FILE:")) {
-                // FILE:room:sender:filename:size:base64data
-                String[] parts = message.substring(5).split(":", 4);
-                if (parts.length >= 4) {
-                    String room = parts[0];
-                    String sender = parts[1];
-                    String fileData = parts[2];
-                    if (parts.length > 3) {
-                        fileData = parts[2] + ":" + parts[3];
-                    }
-                    if (room.equals(currentRoom)) {
-                        handleReceivedFile(sender, fileData);
-                    }
-                }
-            }
-        });
-    }
-
-    private void updateRoomList(String rooms) {
-        roomListModel.clear();
-        if (!rooms.isEmpty()) {
-            for (String room : rooms.split(",")) {
-                roomListModel.addElement(room);
-            }
-        }
-    }
-
-    private void updateOnlineUsers(String users) {
-        userListModel.clear();
-        if (!users.isEmpty()) {
-            for (String user : users.split(",")) {
-                userListModel.addElement(user);
-            }
-        }
-    }
-
-    private void joinRoom(String room) {
-        if (connected && out != null) {
-            out.println("/join " + room);
-        }
-    }
-
-    private void disconnect() {
-        try {
-            if (out != null)
-                out.println("/leave");
-            if (socket != null)
-                socket.close();
-        } catch (Exception ignored) {
-        }
-    }
-
-    private void sendMessage() {
-        String message = inputField.getText().trim();
-        if (message.isEmpty() || !connected || currentRoom == null)
-            return;
-        out.println(message);
-        inputField.setText("");
-    }
-
-    // ═══════════════════════════════════════════════════════════════════
-    // MESSAGE BUBBLES
-    // ═══════════════════════════════════════════════════════════════════
-    private void addSentMessage(String message) {
-        JPanel wrapper = new JPanel(new FlowLayout(FlowLayout.RIGHT, 0, 5));
-        wrapper.setOpaque(false);
-        wrapper.setMaximumSize(new Dimension(Integer.MAX_VALUE, 80));
-        JPanel bubble = createMessageBubble(message, MSG_SENT_BG, true, null);
-        wrapper.add(bubble);
-        chatPanel.add(wrapper);
-        chatPanel.revalidate();
-        scrollToBottom();
-    }
-
-    private void addReceivedMessage(String sender, String message) {
-        JPanel wrapper = new JPanel(new FlowLayout(FlowLayout.LEFT, 0, 5));
-        wrapper.setOpaque(false);
-        wrapper.setMaximumSize(new Dimension(Integer.MAX_VALUE, 80));
-        JPanel bubble = createMessageBubble(message, msgReceivedBg, false, sender);
-        wrapper.add(bubble);
-        chatPanel.add(wrapper);
-        chatPanel.revalidate();
-        scrollToBottom();
-    }
-
-    private void addPrivateMessage(String user, String message, boolean sent) {
-        JPanel wrapper = new JPanel(new FlowLayout(sent ? FlowLayout.RIGHT : FlowLayout.LEFT, 0, 5));
-        wrapper.setOpaque(false);
-        wrapper.setMaximumSize(new Dimension(Integer.MAX_VALUE, 80));
-        Color pmColor = sent ? new Color(255, 140, 0, 200) : new Color(255, 100, 100, 200);
-        String prefix = sent ? "📤 To " + user : "📥 From " + user;
-        JPanel bubble = createMessageBubble(message, pmColor, sent, prefix);
-        wrapper.add(bubble);
-        chatPanel.add(wrapper);
-        chatPanel.revalidate();
-        scrollToBottom();
-    }
-
-    private void addSystemMessage(String message) {
-        JPanel wrapper = new JPanel(new FlowLayout(FlowLayout.CENTER, 0, 8));
-        wrapper.setOpaque(false);
-        wrapper.setMaximumSize(new Dimension(Integer.MAX_VALUE, 40));
-        JLabel label = new JLabel(message);
-        label.setForeground(textDim);
-        label.setFont(new Font("Segoe UI", Font.ITALIC, 12));
-        wrapper.add(label);
-        chatPanel.add(wrapper);
-        chatPanel.revalidate();
-        scrollToBottom();
-    }
-
-    private JPanel createMessageBubble(String text, Color bgColor, boolean isSent, String sender) {
-        JPanel bubble = new JPanel() {
-            @Override
-            protected void paintComponent(Graphics g) {
-                Graphics2D g2 = (Graphics2D) g.create();
-                g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-                g2.setColor(bgColor);
-                g2.fillRoundRect(0, 0, getWidth(), getHeight(), 18, 18);
-                g2.setColor(new Color(255, 255, 255, 30));
-                g2.setStroke(new BasicStroke(1));
-                g2.drawRoundRect(0, 0, getWidth() - 1, getHeight() - 1, 18, 18);
-                g2.dispose();
-            }
-        };
-        bubble.setOpaque(false);
-        bubble.setLayout(new BorderLayout(0, 3));
-        bubble.setBorder(BorderFactory.createEmptyBorder(8, 14, 8, 14));
-
-        if (sender != null && !isSent) {
-            JLabel senderLabel = new JLabel(sender);
-            senderLabel.setForeground(ACCENT_SECONDARY);
-            senderLabel.setFont(new Font("Segoe UI", Font.BOLD, 11));
-            bubble.add(senderLabel, BorderLayout.NORTH);
-        }
-
-        String wrappedText = "<html><body style='width: 200px'>" + text + "</body></html>";
-        JLabel msgLabel = new JLabel(wrappedText);
-        msgLabel.setForeground(isSent ? Color.WHITE : textPrimary);
-        msgLabel.setFont(new Font("Segoe UI", Font.PLAIN, 14));
-        bubble.add(msgLabel, BorderLayout.CENTER);
-
-        String time = new SimpleDateFormat("HH:mm").format(new Date());
-        JLabel timeLabel = new JLabel(time);
-        timeLabel.setForeground(new Color(255, 255, 255, 150));
-        timeLabel.setFont(new Font("Segoe UI", Font.PLAIN, 10));
-        timeLabel.setHorizontalAlignment(SwingConstants.RIGHT);
-        bubble.add(timeLabel, BorderLayout.SOUTH);
-
-        return bubble;
-    }
-
-    private void scrollToBottom() {
-        SwingUtilities.invokeLater(() -> {
-            JScrollBar vertical = chatScrollPane.getVerticalScrollBar();
-            vertical.setValue(vertical.getMaximum());
-        });
-    }
-
-    // ═══════════════════════════════════════════════════════════════════
-    // CUSTOM LIST RENDERERS
-    // ═══════════════════════════════════════════════════════════════════
-    private class RoomListCellRenderer extends DefaultListCellRenderer {
-        @Override
-        public Component getListCellRendererComponent(JList<?> list, Object value,
-                int index, boolean isSelected, boolean cellHasFocus) {
-            JLabel label = (JLabel) super.getListCellRendererComponent(list, value, index, isSelected, cellHasFocus);
-            label.setText("  # " + value);
-            label.setOpaque(false);
-            label.setForeground(isSelected ? Color.WHITE : textPrimary);
-            label.setBorder(BorderFactory.createEmptyBorder(8, 5, 8, 5));
-            if (isSelected) {
-                label.setOpaque(true);
-                label.setBackground(
-                        new Color(ACCENT_PRIMARY.getRed(), ACCENT_PRIMARY.getGreen(), ACCENT_PRIMARY.getBlue(), 100));
-            }
-            return label;
-        }
-    }
-
-    private class UserListCellRenderer extends DefaultListCellRenderer {
-        @Override
-        public Component getListCellRendererComponent(JList<?> list, Object value,
-                int index, boolean isSelected, boolean cellHasFocus) {
-            JLabel label = (JLabel) super.getListCellRendererComponent(list, value, index, isSelected, cellHasFocus);
-            String[] parts = value.toString().split(":");
-            String displayName = parts[0];
-            label.setText("  ● " + displayName);
-            label.setOpaque(false);
-            label.setForeground(isSelected ? Color.WHITE : ONLINE_DOT);
-            label.setBorder(BorderFactory.createEmptyBorder(6, 5, 6, 5));
-            if (displayName.equals(username)) {
-                label.setText("  ● " + displayName + " (you)");
-                label.setForeground(ACCENT_SECONDARY);
-            }
-            return label;
-        }
-    }
-
-    // ═══════════════════════════════════════════════════════════════════
-    // MAIN
-    // ═══════════════════════════════════════════════════════════════════
-    public static void main(String[] args) {
-        try {
-            UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
-        } catch (Exception ignored) {
-        }
-        SwingUtilities.invokeLater(ChatClientGUI::new);
-    }
-}
+import javax.swing.*;
+import javax.swing.border.*;
+import java.awt.*;
+import java.awt.event.*;
+import java.awt.geom.*;
+import java.awt.image.BufferedImage;
+import java.io.*;
+import java.util.*;
+// java.awt.* has a List too
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ChatClientGUI extends JFrame {
+
+    // ═══════════════════════════════════════════════════════════════════
+    // 🎨 THEME SYSTEM - Light/Dark Mode
+    // ═══════════════════════════════════════════════════════════════════
+    private boolean isDarkMode = true;
+
+    // Dark Theme Colors
+    private static final Color DARK_BG = new Color(15, 15, 25, 220);
+    private static final Color DARK_PANEL = new Color(30, 30, 50, 180);
+    private static final Color DARK_LIGHT = new Color(60, 60, 90, 150);
+    private static final Color DARK_BORDER = new Color(100, 100, 140, 100);
+    private static final Color DARK_TEXT = new Color(255, 255, 255);
+    private static final Color DARK_TEXT_DIM = new Color(140, 140, 160);
+    private static final Color DARK_MSG_RECEIVED = new Color(45, 45, 70, 200);
+
+    // Light Theme Colors
+    private static final Color LIGHT_BG = new Color(240, 243, 250, 240);
+    private static final Color LIGHT_PANEL = new Color(255, 255, 255, 200);
+    private static final Color LIGHT_LIGHT = new Color(230, 235, 245, 180);
+    private static final Color LIGHT_BORDER = new Color(200, 205, 220, 150);
+    private static final Color LIGHT_TEXT = new Color(30, 30, 50);
+    private static final Color LIGHT_TEXT_DIM = new Color(100, 100, 120);
+    private static final Color LIGHT_MSG_RECEIVED = new Color(235, 238, 248, 220);
+
+    // Accent Colors (shared)
+    private static final Color ACCENT_PRIMARY = new Color(138, 43, 226);
+    private static final Color ACCENT_SECONDARY = new Color(0, 191, 255);
+    private static final Color ACCENT_GRADIENT_1 = new Color(123, 104, 238);
+    private static final Color ACCENT_GRADIENT_2 = new Color(65, 105, 225);
+    private static final Color MSG_SENT_BG = new Color(123, 104, 238, 200);
+    private static final Color ONLINE_DOT = new Color(50, 205, 50);
+
+    // Current theme colors (will be updated)
+    private Color glassBg, glassPanel, glassLight, glassBorder, textPrimary, textDim, msgReceivedBg;
+
+    // ═══════════════════════════════════════════════════════════════════
+    // COMPONENTS
+    // ═══════════════════════════════════════════════════════════════════
+    private JPanel mainContentPane;
+    private JPanel sidebarPanel;
+    private JPanel chatAreaPanel;
+    private JTextField inputField;
+    private JButton sendButton;
+    private JButton themeToggleBtn;
+    private JLabel statusLabel;
+    private JLabel currentRoomLabel;
+    private JScrollPane chatScrollPane;
+    private SortedListModel roomListModel;
+    private SortedListModel userListModel;
+    private JList<String> roomList;
+    private JList<String> userList;
+
+    // Network
+    private volatile ChatClient client;
+    private String username;
+    private String currentRoom = null;
+    // Set by the I/O thread, read by both
+    private volatile boolean connected = false;
+
+    // Session resume
+    private volatile String resumeToken;
+    private final Map<String, Long> lastSeqByRoom = new ConcurrentHashMap<>();
+    private volatile boolean userQuit = false;
+    // Reconnect backoff: random delay up to base * 2^attempt (capped), so a
+    // restarted server is not hit by every client at the same instant
+    private static final long RECONNECT_BASE_MS = 500;
+    private static final long RECONNECT_MAX_MS = 30_000;
+    private final AtomicInteger reconnectAttempts = new AtomicInteger();
+
+    // Rooms followed on this connection; only currentRoom is displayed
+    private final Set<String> subscribedRooms = ConcurrentHashMap.newKeySet();
+    // Rooms the user chose to keep following (★). Any other room is left when the
+    // user moves on, so visiting many rooms never piles up subscriptions. EDT only.
+    private final Set<String> followedRooms = new HashSet<>();
+    private final Map<String, Integer> unreadByRoom = new HashMap<>();
+
+    // Room catalog: version + member counts (names live in roomListModel)
+    private long roomCatalogVersion = 0;
+    private final Map<String, Integer> roomMemberCounts = new HashMap<>();
+    // ROOMS pages received so far (name=count), applied once the last one is in
+    private final List<String> roomPages = new ArrayList<>();
+
+    // File being uploaded (one at a time) and its progress row
+    private volatile FileSender activeUpload;
+    private JPanel uploadBar;
+    private JProgressBar uploadProgress;
+
+    // Received files, decoded to disk off the EDT
+    private final FileSpool fileSpool = new FileSpool();
+
+    // Transcript: scrollback-capped rows, older pages fetched from the store
+    private static final int SCROLLBACK_ROWS = 2000;
+    private static final int HISTORY_PAGE = 50;
+    private final TranscriptModel transcriptModel = new TranscriptModel(SCROLLBACK_ROWS);
+    private ChatTranscript transcript;
+    private final ServerTranscriptStore serverHistory = new ServerTranscriptStore();
+    private TranscriptStore transcriptStore = serverHistory;
+
+    // Local history in front of the server, created once the username is known
+    private HistoryCache historyCache;
+
+    // Room being opened: cached rows are shown and /since is in flight. Live
+    // rows for it wait here so they land after the caught-up ones.
+    private static final int OPEN_ROWS = 100;
+    private String openingRoom;
+    private long openingSeq;
+    private long[] openingAnchor;
+    private final List<TranscriptEntry> openingBacklog = new ArrayList<>();
+    private final List<String> openingLines = new ArrayList<>();
+    private final List<String> sinceLines = new ArrayList<>();
+
+    // Incoming lines waiting for the EDT; drained at most once per frame
+    private static final int PUMP_INTERVAL_MS = 16;
+    private static final long PUMP_BUDGET_NANOS = 8_000_000;
+    private final ConcurrentLinkedQueue<Incoming> inbox = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean pumpRunning = new AtomicBoolean();
+    private final javax.swing.Timer pumpTimer = new javax.swing.Timer(PUMP_INTERVAL_MS, e -> drainInbox());
+
+    // Window dragging
+    private Point dragOffset;
+
+    // Server config
+    private static final String SERVER_IP = "127.0.0.1";
+    private static final int SERVER_PORT = 9999;
+
+    // Background image
+    private BufferedImage darkBgImage, lightBgImage;
+
+    public ChatClientGUI() {
+        pumpTimer.setInitialDelay(0);
+        username = showStyledInputDialog();
+        if (username == null || username.trim().isEmpty()) {
+            username = "User" + (int) (Math.random() * 1000);
+        }
+        historyCache = new HistoryCache(username, serverHistory);
+        transcriptStore = historyCache;
+
+        applyTheme();
+        createBackgroundImages();
+        setupWindow();
+        setupTitleBar();
+        setupMainContent();
+        setupStatusBar();
+        setAppIcon();
+
+        setVisible(true);
+        connectToServer();
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // APP ICON
+    // ═══════════════════════════════════════════════════════════════════
+    private void setAppIcon() {
+        // Create a custom chat icon
+        BufferedImage icon = new BufferedImage(64, 64, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2 = icon.createGraphics();
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+
+        // Background circle with gradient
+        GradientPaint gradient = new GradientPaint(0, 0, ACCENT_GRADIENT_1, 64, 64, ACCENT_GRADIENT_2);
+        g2.setPaint(gradient);
+        g2.fillOval(4, 4, 56, 56);
+
+        // Chat bubble shape
+        g2.setColor(Color.WHITE);
+        g2.fillRoundRect(14, 18, 36, 24, 12, 12);
+
+        // Bubble tail
+        int[] xPoints = { 18, 14, 22 };
+        int[] yPoints = { 38, 48, 42 };
+        g2.fillPolygon(xPoints, yPoints, 3);
+
+        // Dots in bubble
+        g2.setColor(ACCENT_PRIMARY);
+        g2.fillOval(20, 26, 6, 6);
+        g2.fillOval(29, 26, 6, 6);
+        g2.fillOval(38, 26, 6, 6);
+
+        g2.dispose();
+
+        setIconImage(icon);
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // THEME SYSTEM
+    // ═══════════════════════════════════════════════════════════════════
+    private void applyTheme() {
+        if (isDarkMode) {
+            glassBg = DARK_BG;
+            glassPanel = DARK_PANEL;
+            glassLight = DARK_LIGHT;
+            glassBorder = DARK_BORDER;
+            textPrimary = DARK_TEXT;
+            textDim = DARK_TEXT_DIM;
+            msgReceivedBg = DARK_MSG_RECEIVED;
+        } else {
+            glassBg = LIGHT_BG;
+            glassPanel = LIGHT_PANEL;
+            glassLight = LIGHT_LIGHT;
+            glassBorder = LIGHT_BORDER;
+            textPrimary = LIGHT_TEXT;
+            textDim = LIGHT_TEXT_DIM;
+            msgReceivedBg = LIGHT_MSG_RECEIVED;
+        }
+    }
+
+    private void toggleTheme() {
+        isDarkMode = !isDarkMode;
+        applyTheme();
+
+        // Update theme button
+        themeToggleBtn.setText(isDarkMode ? "🌙" : "☀️");
+        themeToggleBtn.setToolTipText(isDarkMode ? "Switch to Light Mode" : "Switch to Dark Mode");
+
+        // Repaint everything
+        repaint();
+
+        // Show notification
+        addSystemMessage(isDarkMode ? "🌙 Đã chuyển sang Dark Mode" : "☀️ Đã chuyển sang Light Mode");
+    }
+
+    private String showStyledInputDialog() {
+        JPanel panel = new JPanel(new BorderLayout(10, 10));
+        panel.setBackground(new Color(30, 30, 45));
+        panel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
+
+        JLabel label = new JLabel("✨ Nhập tên của bạn:");
+        label.setForeground(Color.WHITE);
+        label.setFont(new Font("Segoe UI", Font.BOLD, 14));
+
+        JTextField field = new JTextField(15);
+        field.setBackground(new Color(50, 50, 70));
+        field.setForeground(Color.WHITE);
+        field.setCaretColor(ACCENT_PRIMARY);
+        field.setFont(new Font("Segoe UI", Font.PLAIN, 14));
+        field.setBorder(BorderFactory.createCompoundBorder(
+                BorderFactory.createLineBorder(ACCENT_PRIMARY, 2),
+                BorderFactory.createEmptyBorder(10, 15, 10, 15)));
+
+        panel.add(label, BorderLayout.NORTH);
+        panel.add(field, BorderLayout.CENTER);
+
+        UIManager.put("OptionPane.background", new Color(30, 30, 45));
+        UIManager.put("Panel.background", new Color(30, 30, 45));
+
+        int result = JOptionPane.showConfirmDialog(null, panel,
+                "💬 MiniChat - Liquid Glass",
+                JOptionPane.OK_CANCEL_OPTION,
+                JOptionPane.PLAIN_MESSAGE);
+
+        return (result == JOptionPane.OK_OPTION) ? field.getText().trim() : null;
+    }
+
+    // Rounded glass panel with border, for ChromeCache
+    private ChromeCache.Painter glassPanelPainter(int arc) {
+        return (g2, w, h) -> {
+            g2.setColor(glassPanel);
+            g2.fillRoundRect(0, 0, w, h, arc, arc);
+            g2.setColor(glassBorder);
+            g2.setStroke(new BasicStroke(1.5f));
+            g2.drawRoundRect(0, 0, w - 1, h - 1, arc, arc);
+        };
+    }
+
+    private void createBackgroundImages() {
+        // Dark background
+        darkBgImage = new BufferedImage(800, 600, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2 = darkBgImage.createGraphics();
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+
+        GradientPaint gradient = new GradientPaint(0, 0, new Color(15, 15, 35), 800, 600, new Color(30, 20, 50));
+        g2.setPaint(gradient);
+        g2.fillRect(0, 0, 800, 600);
+
+        g2.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.3f));
+        RadialGradientPaint orb1 = new RadialGradientPaint(new Point2D.Float(600, 150), 200,
+                new float[] { 0f, 1f }, new Color[] { new Color(138, 43, 226, 150), new Color(138, 43, 226, 0) });
+        g2.setPaint(orb1);
+        g2.fillOval(400, -50, 400, 400);
+
+        RadialGradientPaint orb2 = new RadialGradientPaint(new Point2D.Float(100, 500), 250,
+                new float[] { 0f, 1f }, new Color[] { new Color(0, 191, 255, 100), new Color(0, 191, 255, 0) });
+        g2.setPaint(orb2);
+        g2.fillOval(-100, 350, 500, 500);
+        g2.dispose();
+
+        // Light background
+        lightBgImage = new BufferedImage(800, 600, BufferedImage.TYPE_INT_ARGB);
+        g2 = lightBgImage.createGraphics();
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+
+        gradient = new GradientPaint(0, 0, new Color(235, 240, 255), 800, 600, new Color(245, 245, 255));
+        g2.setPaint(gradient);
+        g2.fillRect(0, 0, 800, 600);
+
+        g2.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.2f));
+        orb1 = new RadialGradientPaint(new Point2D.Float(600, 150), 200,
+                new float[] { 0f, 1f }, new Color[] { new Color(138, 43, 226, 80), new Color(138, 43, 226, 0) });
+        g2.setPaint(orb1);
+        g2.fillOval(400, -50, 400, 400);
+
+        orb2 = new RadialGradientPaint(new Point2D.Float(100, 500), 250,
+                new float[] { 0f, 1f }, new Color[] { new Color(0, 191, 255, 60), new Color(0, 191, 255, 0) });
+        g2.setPaint(orb2);
+        g2.fillOval(-100, 350, 500, 500);
+        g2.dispose();
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // WINDOW SETUP
+    // ═══════════════════════════════════════════════════════════════════
+    private void setupWindow() {
+        setTitle("MiniChat - Liquid Glass");
+        setSize(900, 700);
+        setUndecorated(true);
+        setLocationRelativeTo(null);
+        setDefaultCloseOperation(EXIT_ON_CLOSE);
+
+        mainContentPane = new JPanel(new BorderLayout()) {
+            // Scaled once per window size and theme, not on every repaint
+            private final ChromeCache background = new ChromeCache((g2, w, h) -> {
+                g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g2.drawImage(isDarkMode ? darkBgImage : lightBgImage, 0, 0, w, h, null);
+            });
+
+            @Override
+            protected void paintComponent(Graphics g) {
+                super.paintComponent(g);
+                if (darkBgImage != null) {
+                    background.paint(this, g, isDarkMode);
+                }
+            }
+        };
+        mainContentPane.setOpaque(false);
+        setContentPane(mainContentPane);
+
+        setShape(new RoundRectangle2D.Double(0, 0, getWidth(), getHeight(), 25, 25));
+
+        addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentResized(ComponentEvent e) {
+                setShape(new RoundRectangle2D.Double(0, 0, getWidth(), getHeight(), 25, 25));
+            }
+        });
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // CUSTOM TITLE BAR
+    // ═══════════════════════════════════════════════════════════════════
+    private void setupTitleBar() {
+        JPanel titleBar = new JPanel(new BorderLayout()) {
+            private final ChromeCache chrome = new ChromeCache((g2, w, h) -> {
+                Path2D path = new Path2D.Float();
+                path.moveTo(25, 0);
+                path.lineTo(w - 25, 0);
+                path.quadTo(w, 0, w, 25);
+                path.lineTo(w, h);
+                path.lineTo(0, h);
+                path.lineTo(0, 25);
+                path.quadTo(0, 0, 25, 0);
+                path.closePath();
+
+                g2.setColor(glassPanel);
+                g2.fill(path);
+                g2.setColor(glassBorder);
+                g2.setStroke(new BasicStroke(1.5f));
+                g2.draw(path);
+            });
+
+            @Override
+            protected void paintComponent(Graphics g) {
+                chrome.paint(this, g, isDarkMode);
+            }
+        };
+        titleBar.setOpaque(false);
+        titleBar.setPreferredSize(new Dimension(getWidth(), 50));
+
+        // Left side - Logo and title
+        JPanel leftPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 15, 8));
+        leftPanel.setOpaque(false);
+
+        // Custom drawn chat icon instead of emoji
+        JPanel logo = new JPanel() {
+            @Override
+            protected void paintComponent(Graphics g) {
+                Graphics2D g2 = (Graphics2D) g.create();
+                g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+                // Chat bubble
+                g2.setColor(ACCENT_PRIMARY);
+                g2.fillRoundRect(2, 4, 20, 14, 8, 8);
+                // Bubble tail
+                int[] xp = { 5, 2, 8 };
+                int[] yp = { 16, 22, 18 };
+                g2.fillPolygon(xp, yp, 3);
+                // Dots
+                g2.setColor(Color.WHITE);
+                g2.fillOval(6, 9, 4, 4);
+                g2.fillOval(11, 9, 4, 4);
+                g2.fillOval(16, 9, 4, 4);
+                g2.dispose();
+            }
+
+            @Override
+            public Dimension getPreferredSize() {
+                return new Dimension(26, 26);
+            }
+        };
+        logo.setOpaque(false);
+
+        JLabel title = new JLabel("MiniChat") {
+            @Override
+            protected void paintComponent(Graphics g) {
+                g.setColor(textPrimary);
+                g.setFont(getFont());
+                g.drawString(getText(), 0, g.getFontMetrics().getAscent());
+            }
+        };
+        title.setFont(new Font("Segoe UI", Font.BOLD, 18));
+
+        JLabel subtitle = new JLabel("Liquid Glass");
+        subtitle.setFont(new Font("Segoe UI", Font.ITALIC, 12));
+        subtitle.setForeground(ACCENT_SECONDARY);
+
+        leftPanel.add(logo);
+        leftPanel.add(title);
+        leftPanel.add(subtitle);
+
+        // Right side - Theme toggle + Window controls
+        JPanel controls = new JPanel(new FlowLayout(FlowLayout.RIGHT, 8, 10));
+        controls.setOpaque(false);
+
+        // Theme toggle button - use text instead of emoji
+        themeToggleBtn = createThemeButton();
+        themeToggleBtn.setToolTipText("Switch to Light Mode");
+        themeToggleBtn.addActionListener(e -> toggleTheme());
+
+        JButton minimizeBtn = createWindowButton("min");
+        JButton maximizeBtn = createWindowButton("max");
+        JButton closeBtn = createWindowButton("close");
+
+        minimizeBtn.addActionListener(e -> setState(Frame.ICONIFIED));
+        maximizeBtn.addActionListener(e -> {
+            if (getExtendedState() == Frame.MAXIMIZED_BOTH) {
+                setExtendedState(Frame.NORMAL);
+            } else {
+                setExtendedState(Frame.MAXIMIZED_BOTH);
+            }
+        });
+        closeBtn.addActionListener(e -> {
+            disconnect();
+            System.exit(0);
+        });
+
+        controls.add(themeToggleBtn);
+        controls.add(minimizeBtn);
+        controls.add(maximizeBtn);
+        controls.add(closeBtn);
+
+        titleBar.add(leftPanel, BorderLayout.WEST);
+        titleBar.add(controls, BorderLayout.EAST);
+
+        // Dragging
+        titleBar.addMouseListener(new MouseAdapter() {
+            public void mousePressed(MouseEvent e) {
+                dragOffset = e.getPoint();
+            }
+        });
+        titleBar.addMouseMotionListener(new MouseMotionAdapter() {
+            public void mouseDragged(MouseEvent e) {
+                Point current = e.getLocationOnScreen();
+                setLocation(current.x - dragOffset.x, current.y - dragOffset.y);
+            }
+        });
+
+        add(titleBar, BorderLayout.NORTH);
+    }
+
+    private JButton createGlassButton(String text) {
+        JButton btn = new JButton(text) {
+            @Override
+            protected void paintComponent(Graphics g) {
+                Graphics2D g2 = (Graphics2D) g.create();
+                g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+
+                if (getModel().isRollover()) {
+                    g2.setColor(glassLight);
+                    g2.fillRoundRect(0, 0, getWidth(), getHeight(), 10, 10);
+                }
+
+                g2.setColor(getForeground());
+                g2.setFont(getFont());
+                FontMetrics fm = g2.getFontMetrics();
+                int x = (getWidth() - fm.stringWidth(getText())) / 2;
+                int y = (getHeight() + fm.getAscent() - fm.getDescent()) / 2;
+                g2.drawString(getText(), x, y);
+                g2.dispose();
+            }
+        };
+        btn.setOpaque(false);
+        btn.setContentAreaFilled(false);
+        btn.setBorderPainted(false);
+        btn.setFocusPainted(false);
+        btn.setForeground(textPrimary);
+        btn.setFont(new Font("Segoe UI", Font.PLAIN, 14));
+        btn.setPreferredSize(new Dimension(35, 30));
+        btn.setCursor(new Cursor(Cursor.HAND_CURSOR));
+        return btn;
+    }
+
+    // Theme toggle button with sun/moon icon
+    private JButton createThemeButton() {
+        JButton btn = new JButton() {
+            @Override
+            protected void paintComponent(Graphics g) {
+                Graphics2D g2 = (Graphics2D) g.create();
+                g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+
+                if (getModel().isRollover()) {
+                    g2.setColor(glassLight);
+                    g2.fillRoundRect(0, 0, getWidth(), getHeight(), 10, 10);
+                }
+
+                int cx = getWidth() / 2;
+                int cy = getHeight() / 2;
+
+                if (isDarkMode) {
+                    // Draw moon
+                    g2.setColor(new Color(255, 220, 100));
+                    g2.fillOval(cx - 8, cy - 8, 16, 16);
+                    g2.setColor(glassPanel);
+                    g2.fillOval(cx - 4, cy - 10, 14, 14);
+                } else {
+                    // Draw sun
+                    g2.setColor(new Color(255, 180, 50));
+                    g2.fillOval(cx - 6, cy - 6, 12, 12);
+                    g2.setStroke(new BasicStroke(2));
+                    for (int i = 0; i < 8; i++) {
+                        double angle = i * Math.PI / 4;
+                        int x1 = cx + (int) (10 * Math.cos(angle));
+                        int y1 = cy + (int) (10 * Math.sin(angle));
+                        int x2 = cx + (int) (14 * Math.cos(angle));
+                        int y2 = cy + (int) (14 * Math.sin(angle));
+                        g2.drawLine(x1, y1, x2, y2);
+                    }
+                }
+                g2.dispose();
+            }
+        };
+        btn.setOpaque(false);
+        btn.setContentAreaFilled(false);
+        btn.setBorderPainted(false);
+        btn.setFocusPainted(false);
+        btn.setPreferredSize(new Dimension(35, 30));
+        btn.setCursor(new Cursor(Cursor.HAND_CURSOR));
+        return btn;
+    }
+
+    // Window control buttons (minimize, maximize, close)
+    private JButton createWindowButton(String type) {
+        JButton btn = new JButton() {
+            @Override
+            protected void paintComponent(Graphics g) {
+                Graphics2D g2 = (Graphics2D) g.create();
+                g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+
+                Color hoverColor = type.equals("close") ? new Color(220, 50, 50) : glassLight;
+                if (getModel().isRollover()) {
+                    g2.setColor(hoverColor);
+                    g2.fillRoundRect(0, 0, getWidth(), getHeight(), 8, 8);
+                }
+
+                int cx = getWidth() / 2;
+                int cy = getHeight() / 2;
+                Color iconColor = type.equals("close")
+                        ? (getModel().isRollover() ? Color.WHITE : new Color(255, 100, 100))
+                        : textPrimary;
+                g2.setColor(iconColor);
+                g2.setStroke(new BasicStroke(2, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+
+                switch (type) {
+                    case "min":
+                        g2.drawLine(cx - 5, cy, cx + 5, cy);
+                        break;
+                    case "max":
+                        g2.drawRect(cx - 5, cy - 5, 10, 10);
+                        break;
+                    case "close":
+                        g2.drawLine(cx - 4, cy - 4, cx + 4, cy + 4);
+                        g2.drawLine(cx + 4, cy - 4, cx - 4, cy + 4);
+                        break;
+                }
+                g2.dispose();
+            }
+        };
+        btn.setOpaque(false);
+        btn.setContentAreaFilled(false);
+        btn.setBorderPainted(false);
+        btn.setFocusPainted(false);
+        btn.setPreferredSize(new Dimension(35, 30));
+        btn.setCursor(new Cursor(Cursor.HAND_CURSOR));
+        return btn;
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // MAIN CONTENT (Sidebar + Chat)
+    // ═══════════════════════════════════════════════════════════════════
+    private void setupMainContent() {
+        JPanel mainContent = new JPanel(new BorderLayout(10, 0));
+        mainContent.setOpaque(false);
+        mainContent.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+
+        sidebarPanel = createSidebar();
+        chatAreaPanel = createChatArea();
+
+        mainContent.add(sidebarPanel, BorderLayout.WEST);
+        mainContent.add(chatAreaPanel, BorderLayout.CENTER);
+
+        add(mainContent, BorderLayout.CENTER);
+    }
+
+    private JPanel createSidebar() {
+        JPanel sidebar = new JPanel(new BorderLayout(0, 10)) {
+            private final ChromeCache chrome = new ChromeCache(glassPanelPainter(15));
+
+            @Override
+            protected void paintComponent(Graphics g) {
+                chrome.paint(this, g, isDarkMode);
+            }
+        };
+        sidebar.setOpaque(false);
+        sidebar.setPreferredSize(new Dimension(200, 0));
+        sidebar.setBorder(BorderFactory.createEmptyBorder(15, 10, 15, 10));
+
+        // Rooms section
+        JPanel roomsSection = new JPanel(new BorderLayout(0, 8));
+        roomsSection.setOpaque(false);
+
+        JLabel roomsTitle = new JLabel("📁 ROOMS");
+        roomsTitle.setForeground(ACCENT_SECONDARY);
+        roomsTitle.setFont(new Font("Segoe UI", Font.BOLD, 12));
+
+        roomListModel = new SortedListModel(name -> name);
+        roomListModel.sync(Arrays.asList("General", "Gaming", "Music", "Random"));
+
+        roomList = new JList<>(roomListModel);
+        roomList.setOpaque(false);
+        roomList.setBackground(new Color(0, 0, 0, 0));
+        roomList.setFont(new Font("Segoe UI", Font.PLAIN, 13));
+        roomList.setSelectionBackground(ACCENT_PRIMARY);
+        roomList.setCellRenderer(new RoomListCellRenderer());
+        fixRowSize(roomList, "General");
+        roomList.addListSelectionListener(e -> {
+            // Rows inserted or removed above shift the selection without changing it
+            String selected = roomList.getSelectedValue();
+            if (!e.getValueIsAdjusting() && selected != null && !selected.equals(currentRoom)) {
+                joinRoom(selected);
+            }
+        });
+        roomList.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                showRoomMenu(e);
+            }
+
+            @Override
+            public void mouseReleased(MouseEvent e) {
+                showRoomMenu(e);
+            }
+        });
+
+        JScrollPane roomScroll = new JScrollPane(roomList);
+        roomScroll.setOpaque(false);
+        roomScroll.getViewport().setOpaque(false);
+        roomScroll.setBorder(null);
+        roomScroll.setPreferredSize(new Dimension(180, 150));
+
+        roomsSection.add(roomsTitle, BorderLayout.NORTH);
+        roomsSection.add(roomScroll, BorderLayout.CENTER);
+
+        JButton addRoomBtn = createAccentButton("+ New Room");
+        addRoomBtn.addActionListener(e -> {
+            String roomName = JOptionPane.showInputDialog(this, "Tên phòng mới:");
+            if (roomName != null && !roomName.trim().isEmpty()) {
+                sendLine("/create " + roomName.trim());
+            }
+        });
+        roomsSection.add(addRoomBtn, BorderLayout.SOUTH);
+
+        // Online users section
+        JPanel usersSection = new JPanel(new BorderLayout(0, 8));
+        usersSection.setOpaque(false);
+
+        JLabel usersTitle = new JLabel("👥 ONLINE");
+        usersTitle.setForeground(ACCENT_SECONDARY);
+        usersTitle.setFont(new Font("Segoe UI", Font.BOLD, 12));
+
+        userListModel = new SortedListModel(ChatClientGUI::onlineName);
+        userList = new JList<>(userListModel);
+        userList.setOpaque(false);
+        userList.setBackground(new Color(0, 0, 0, 0));
+        userList.setFont(new Font("Segoe UI", Font.PLAIN, 13));
+        userList.setCellRenderer(new UserListCellRenderer());
+        fixRowSize(userList, "user:General");
+        userList.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (e.getClickCount() == 2) {
+                    String selectedUser = userList.getSelectedValue();
+                    if (selectedUser != null && !onlineName(selectedUser).equals(username)) {
+                        String targetUser = onlineName(selectedUser);
+                        String msg = JOptionPane.showInputDialog(ChatClientGUI.this,
+                                "Nhắn riêng cho " + targetUser + ":");
+                        if (msg != null && !msg.trim().isEmpty()) {
+                            sendLine("/pm " + targetUser + " " + msg);
+                        }
+                    }
+                }
+            }
+        });
+
+        JScrollPane userScroll = new JScrollPane(userList);
+        userScroll.setOpaque(false);
+        userScroll.getViewport().setOpaque(false);
+        userScroll.setBorder(null);
+
+        usersSection.add(usersTitle, BorderLayout.NORTH);
+        usersSection.add(userScroll, BorderLayout.CENTER);
+
+        JPanel sectionsPanel = new JPanel(new GridLayout(2, 1, 0, 15));
+        sectionsPanel.setOpaque(false);
+        sectionsPanel.add(roomsSection);
+        sectionsPanel.add(usersSection);
+
+        sidebar.add(sectionsPanel, BorderLayout.CENTER);
+
+        return sidebar;
+    }
+
+    private JPanel createChatArea() {
+        JPanel chatArea = new JPanel(new BorderLayout(0, 10)) {
+            private final ChromeCache chrome = new ChromeCache(glassPanelPainter(15));
+
+            @Override
+            protected void paintComponent(Graphics g) {
+                chrome.paint(this, g, isDarkMode);
+            }
+        };
+        chatArea.setOpaque(false);
+        chatArea.setBorder(BorderFactory.createEmptyBorder(15, 15, 15, 15));
+
+        // Header
+        JPanel header = new JPanel(new BorderLayout());
+        header.setOpaque(false);
+
+        currentRoomLabel = new JLabel("💬 Chọn một phòng để bắt đầu chat") {
+            @Override
+            protected void paintComponent(Graphics g) {
+                g.setColor(textPrimary);
+                g.setFont(getFont());
+                g.drawString(getText(), 0, g.getFontMetrics().getAscent());
+            }
+        };
+        currentRoomLabel.setFont(new Font("Segoe UI", Font.BOLD, 16));
+        header.add(currentRoomLabel, BorderLayout.WEST);
+
+        // Chat transcript: only the visible rows are laid out and painted
+        transcript = new ChatTranscript(transcriptModel, new TranscriptRowRenderer());
+        transcript.setOlderLoader(this::loadOlderMessages);
+        transcript.setClickListener(entry -> {
+            if (entry.kind == TranscriptEntry.Kind.FILE) {
+                saveFile(entry);
+            }
+        });
+
+        chatScrollPane = new JScrollPane(transcript);
+        chatScrollPane.setOpaque(false);
+        chatScrollPane.getViewport().setOpaque(false);
+        chatScrollPane.setBorder(null);
+        chatScrollPane.setHorizontalScrollBarPolicy(ScrollPaneConstants.HORIZONTAL_SCROLLBAR_NEVER);
+        chatScrollPane.getVerticalScrollBar().setUnitIncrement(16);
+
+        JPanel inputArea = createInputArea();
+
+        chatArea.add(header, BorderLayout.NORTH);
+        chatArea.add(chatScrollPane, BorderLayout.CENTER);
+        chatArea.add(inputArea, BorderLayout.SOUTH);
+
+        addSystemMessage("🎉 Chào mừng đến MiniChat Liquid Glass!");
+        addSystemMessage("👆 Chọn một phòng từ sidebar để bắt đầu chat");
+        addSystemMessage("🌙 Nhấn nút mặt trăng/mặt trời để đổi theme!");
+
+        return chatArea;
+    }
+
+    private JPanel createInputArea() {
+        JPanel inputPanel = new JPanel(new BorderLayout(10, 0));
+        inputPanel.setOpaque(false);
+
+        inputField = new JTextField() {
+            private final ChromeCache chrome = new ChromeCache(glassPanelPainter(25));
+
+            @Override
+            protected void paintComponent(Graphics g) {
+                chrome.paint(this, g, isDarkMode);
+                super.paintComponent(g);
+            }
+        };
+        inputField.setOpaque(false);
+        inputField.setForeground(textPrimary);
+        inputField.setCaretColor(ACCENT_PRIMARY);
+        inputField.setFont(new Font("Segoe UI", Font.PLAIN, 14));
+        inputField.setBorder(BorderFactory.createEmptyBorder(12, 20, 12, 20));
+        inputField.addActionListener(e -> sendMessage());
+
+        sendButton = new JButton("Send") {
+            private final ChromeCache chrome = new ChromeCache((g2, w, h) -> {
+                g2.setPaint(new GradientPaint(0, 0, ACCENT_GRADIENT_1, w, h, ACCENT_GRADIENT_2));
+                g2.fillRoundRect(0, 0, w, h, 25, 25);
+            });
+
+            @Override
+            protected void paintComponent(Graphics g) {
+                chrome.paint(this, g, isDarkMode);
+                Graphics2D g2 = (Graphics2D) g.create();
+                g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+
+                if (getModel().isRollover()) {
+                    g2.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.3f));
+                    g2.setColor(Color.WHITE);
+                    g2.fillRoundRect(0, 0, getWidth(), getHeight(), 25, 25);
+                }
+
+                g2.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 1f));
+                g2.setColor(Color.WHITE);
+                g2.setFont(getFont());
+                FontMetrics fm = g2.getFontMetrics();
+                int x = (getWidth() - fm.stringWidth(getText())) / 2;
+                int y = (getHeight() + fm.getAscent() - fm.getDescent()) / 2;
+                g2.drawString(getText(), x, y);
+                g2.dispose();
+            }
+        };
+        sendButton.setOpaque(false);
+        sendButton.setContentAreaFilled(false);
+        sendButton.setBorderPainted(false);
+        sendButton.setFocusPainted(false);
+        sendButton.setPreferredSize(new Dimension(80, 45));
+        sendButton.setFont(new Font("Segoe UI", Font.BOLD, 14));
+        sendButton.setCursor(new Cursor(Cursor.HAND_CURSOR));
+        sendButton.addActionListener(e -> sendMessage());
+
+        // File attach button
+        JButton fileBtn = new JButton() {
+            @Override
+            protected void paintComponent(Graphics g) {
+                Graphics2D g2 = (Graphics2D) g.create();
+                g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+
+                if (getModel().isRollover()) {
+                    g2.setColor(glassLight);
+                    g2.fillRoundRect(0, 0, getWidth(), getHeight(), 15, 15);
+                }
+
+                // Draw paperclip icon
+                g2.setColor(ACCENT_PRIMARY);
+                g2.setStroke(new BasicStroke(2.5f, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+                int cx = getWidth() / 2;
+                int cy = getHeight() / 2;
+
+                // Paperclip shape
+                g2.drawArc(cx - 4, cy - 10, 8, 10, 0, 180);
+                g2.drawLine(cx - 4, cy - 5, cx - 4, cy + 5);
+                g2.drawArc(cx - 6, cy + 2, 12, 10, 180, 180);
+                g2.drawLine(cx + 6, cy + 7, cx + 6, cy - 2);
+                g2.drawArc(cx + 2, cy - 5, 8, 8, 0, 180);
+
+                g2.dispose();
+            }
+        };
+        fileBtn.setOpaque(false);
+        fileBtn.setContentAreaFilled(false);
+        fileBtn.setBorderPainted(false);
+        fileBtn.setFocusPainted(false);
+        fileBtn.setPreferredSize(new Dimension(45, 45));
+        fileBtn.setCursor(new Cursor(Cursor.HAND_CURSOR));
+        fileBtn.setToolTipText("Attach file");
+        fileBtn.addActionListener(e -> selectAndSendFile());
+
+        // Button panel for file + send
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 5, 0));
+        buttonPanel.setOpaque(false);
+        buttonPanel.add(fileBtn);
+        buttonPanel.add(sendButton);
+
+        // Upload progress, shown while a file is being sent
+        uploadProgress = new JProgressBar(0, 1000);
+        uploadProgress.setStringPainted(true);
+        uploadProgress.setForeground(ACCENT_PRIMARY);
+        uploadProgress.setFont(new Font("Segoe UI", Font.PLAIN, 11));
+        JButton cancelUpload = createGlassButton("✕");
+        cancelUpload.setToolTipText("Hủy gửi file");
+        cancelUpload.addActionListener(e -> {
+            FileSender sender = activeUpload;
+            if (sender != null) {
+                sender.cancel();
+            }
+        });
+        uploadBar = new JPanel(new BorderLayout(8, 0));
+        uploadBar.setOpaque(false);
+        uploadBar.setBorder(BorderFactory.createEmptyBorder(0, 0, 8, 0));
+        uploadBar.add(uploadProgress, BorderLayout.CENTER);
+        uploadBar.add(cancelUpload, BorderLayout.EAST);
+        uploadBar.setVisible(false);
+
+        inputPanel.add(uploadBar, BorderLayout.NORTH);
+        inputPanel.add(inputField, BorderLayout.CENTER);
+        inputPanel.add(buttonPanel, BorderLayout.EAST);
+
+        return inputPanel;
+    }
+
+    // File selection and sending; the upload runs on its own thread
+    private void selectAndSendFile() {
+        if (!connected || currentRoom == null) {
+            addSystemMessage("! Join a room first to send files");
+            return;
+        }
+        if (activeUpload != null) {
+            addSystemMessage("! Đang gửi một file khác");
+            return;
+        }
+
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Select file to send");
+
+        int result = fileChooser.showOpenDialog(this);
+        if (result == JFileChooser.APPROVE_OPTION) {
+            File file = fileChooser.getSelectedFile();
+            FileSender sender = new FileSender(file.toPath(), client, new FileSender.Listener() {
+                @Override
+                public void progress(long sent, long total) {
+                    SwingUtilities.invokeLater(() -> uploadProgress.setValue(
+                            total > 0 ? (int) (sent * 1000 / total) : 1000));
+                }
+
+                @Override
+                public void finished(String error) {
+                    SwingUtilities.invokeLater(() -> {
+                        activeUpload = null;
+                        uploadBar.setVisible(false);
+                        addSystemMessage(error == null ? "[OK] File sent: " + file.getName()
+                                : "! " + file.getName() + ": " + error);
+                    });
+                }
+            });
+            activeUpload = sender;
+            uploadProgress.setValue(0);
+            uploadProgress.setString(file.getName() + " (" + formatFileSize(file.length()) + ")");
+            uploadBar.setVisible(true);
+            addSystemMessage(">> Sending file: " + file.getName() + " (" + formatFileSize(file.length()) + ")");
+            Thread thread = new Thread(sender, "upload-" + file.getName());
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    private String formatFileSize(long bytes) {
+        if (bytes < 1024)
+            return bytes + " B";
+        if (bytes < 1024 * 1024)
+            return String.format("%.1f KB", bytes / 1024.0);
+        return String.format("%.1f MB", bytes / (1024.0 * 1024.0));
+    }
+
+    // Copy of the spooled file, done on the spool thread
+    private void saveFile(TranscriptEntry entry) {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setSelectedFile(new File(entry.fileName));
+        fileChooser.setDialogTitle("Save file as");
+
+        int result = fileChooser.showSaveDialog(this);
+        if (result == JFileChooser.APPROVE_OPTION) {
+            File target = fileChooser.getSelectedFile();
+            fileSpool.saveTo(entry.file, target.toPath()).whenComplete((saved, ex) -> SwingUtilities.invokeLater(() -> {
+                if (ex == null) {
+                    addSystemMessage("[OK] File saved: " + target.getName());
+                } else {
+                    Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                    addSystemMessage("! Error saving file: " + cause.getMessage());
+                }
+            }));
+        }
+    }
+
+    private JButton createAccentButton(String text) {
+        JButton btn = new JButton(text) {
+            @Override
+            protected void paintComponent(Graphics g) {
+                Graphics2D g2 = (Graphics2D) g.create();
+                g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+                g2.setColor(glassLight);
+                g2.fillRoundRect(0, 0, getWidth(), getHeight(), 15, 15);
+                if (getModel().isRollover()) {
+                    g2.setColor(ACCENT_PRIMARY);
+                    g2.setStroke(new BasicStroke(2));
+                    g2.drawRoundRect(1, 1, getWidth() - 3, getHeight() - 3, 15, 15);
+                }
+                g2.setColor(textPrimary);
+                g2.setFont(getFont());
+                FontMetrics fm = g2.getFontMetrics();
+                int x = (getWidth() - fm.stringWidth(getText())) / 2;
+                int y = (getHeight() + fm.getAscent() - fm.getDescent()) / 2;
+                g2.drawString(getText(), x, y);
+                g2.dispose();
+            }
+        };
+        btn.setOpaque(false);
+        btn.setContentAreaFilled(false);
+        btn.setBorderPainted(false);
+        btn.setFocusPainted(false);
+        btn.setFont(new Font("Segoe UI", Font.PLAIN, 12));
+        btn.setPreferredSize(new Dimension(btn.getPreferredSize().width, 35));
+        btn.setCursor(new Cursor(Cursor.HAND_CURSOR));
+        return btn;
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // STATUS BAR
+    // ═══════════════════════════════════════════════════════════════════
+    private void setupStatusBar() {
+        JPanel statusBar = new JPanel(new FlowLayout(FlowLayout.LEFT, 15, 8)) {
+            private final ChromeCache chrome = new ChromeCache((g2, w, h) -> {
+                Path2D path = new Path2D.Float();
+                path.moveTo(0, 0);
+                path.lineTo(w, 0);
+                path.lineTo(w, h - 25);
+                path.quadTo(w, h, w - 25, h);
+                path.lineTo(25, h);
+                path.quadTo(0, h, 0, h - 25);
+                path.closePath();
+
+                g2.setColor(glassPanel);
+                g2.fill(path);
+                g2.setColor(glassBorder);
+                g2.setStroke(new BasicStroke(1.5f));
+                g2.draw(path);
+            });
+
+            @Override
+            protected void paintComponent(Graphics g) {
+                chrome.paint(this, g, isDarkMode);
+            }
+        };
+        statusBar.setOpaque(false);
+        statusBar.setPreferredSize(new Dimension(getWidth(), 35));
+
+        JLabel userIcon = new JLabel("👤");
+        JLabel userLabel = new JLabel(username) {
+            @Override
+            protected void paintComponent(Graphics g) {
+                g.setColor(textPrimary);
+                g.setFont(getFont());
+                g.drawString(getText(), 0, g.getFontMetrics().getAscent());
+            }
+        };
+        userLabel.setFont(new Font("Segoe UI", Font.BOLD, 12));
+
+        JLabel separator = new JLabel("  |  ");
+        separator.setForeground(textDim);
+
+        statusLabel = new JLabel("● Đang kết nối...");
+        statusLabel.setForeground(new Color(255, 165, 0));
+        statusLabel.setFont(new Font("Segoe UI", Font.PLAIN, 12));
+
+        statusBar.add(userIcon);
+        statusBar.add(userLabel);
+        statusBar.add(separator);
+        statusBar.add(statusLabel);
+
+        add(statusBar, BorderLayout.SOUTH);
+    }
+
+    // Every row is one line in the same font, so give JList a fixed row size
+    // instead of letting it measure each row whenever the model changes
+    private static void fixRowSize(JList<String> list, String sample) {
+        list.setFixedCellWidth(180);
+        list.setFixedCellHeight(list.getCellRenderer()
+                .getListCellRendererComponent(list, sample, 0, false, false).getPreferredSize().height);
+    }
+
+    // ONLINE entries are name:room
+    private static String onlineName(String entry) {
+        int sep = entry.indexOf(':');
+        return sep < 0 ? entry : entry.substring(0, sep);
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // NETWORK
+    // ═══════════════════════════════════════════════════════════════════
+    private void connectToServer() {
+        ChatClient connection = ChatClient.tcp(SERVER_IP, SERVER_PORT, new ChatClient.Listener() {
+            @Override
+            public void connected(ChatClient c) {
+                connected = true;
+                // Login reads room state that belongs to the EDT; replies can only
+                // arrive after it is sent, so they still queue behind it
+                SwingUtilities.invokeLater(() -> {
+                    if (client != c) {
+                        return;
+                    }
+                    statusLabel.setText("● Đã kết nối");
+                    statusLabel.setForeground(ONLINE_DOT);
+                    if (resumeToken != null) {
+                        List<String> seqs = new ArrayList<>();
+                        for (String room : subscribedRooms) {
+                            seqs.add(room + "=" + lastSeqFor(room));
+                        }
+                        c.send("RESUME:" + resumeToken + ":" + String.join(",", seqs));
+                    } else {
+                        c.send("USERNAME:" + username);
+                        restoreRooms();
+                    }
+                });
+            }
+
+            @Override
+            public void event(ChatClient c, ServerEvent event) {
+                enqueue(event);
+                wakePump();
+            }
+
+            @Override
+            public void events(ChatClient c, List<ServerEvent> batch) {
+                // Whole burst queued before the pump is woken once
+                for (ServerEvent event : batch) {
+                    enqueue(event);
+                }
+                wakePump();
+            }
+
+            @Override
+            public void disconnected(ChatClient c, IOException cause) {
+                if (connected) {
+                    connectionLost();
+                    return;
+                }
+                if (reconnectAttempts.get() == 0) {
+                    SwingUtilities.invokeLater(() -> {
+                        statusLabel.setText("● Không thể kết nối");
+                        statusLabel.setForeground(new Color(255, 100, 100));
+                        addSystemMessage("❌ Không thể kết nối. Hãy chạy Server trước!");
+                    });
+                }
+                if (!userQuit) {
+                    scheduleReconnect();
+                }
+            }
+        });
+        client = connection;
+        connection.connect();
+    }
+
+    // No-op while there is no connection; lines sent before the login
+    // completes simply queue behind it
+    private void sendLine(String line) {
+        ChatClient c = client;
+        if (c != null) {
+            c.send(line);
+        }
+    }
+
+    // Socket dropped after a successful session: reconnect and resume
+    private void connectionLost() {
+        connected = false;
+        fileSpool.abortAll();
+        if (userQuit) {
+            return;
+        }
+        scheduleReconnect();
+    }
+
+    private void scheduleReconnect() {
+        int attempt = reconnectAttempts.getAndIncrement();
+        long cap = Math.min(RECONNECT_MAX_MS, RECONNECT_BASE_MS << Math.min(attempt, 16));
+        long delay = ThreadLocalRandom.current().nextLong(cap / 4, cap + 1);
+        SwingUtilities.invokeLater(() -> {
+            statusLabel.setText("● Mất kết nối, thử lại sau " + (delay + 999) / 1000 + "s...");
+            statusLabel.setForeground(new Color(255, 165, 0));
+            javax.swing.Timer timer = new javax.swing.Timer((int) delay, e -> connectToServer());
+            timer.setRepeats(false);
+            timer.start();
+        });
+    }
+
+    // Fresh session: follow the same rooms again, current one last, in one /join
+    private void restoreRooms() {
+        String room = currentRoom;
+        List<String> others = new ArrayList<>();
+        for (String subscribed : subscribedRooms) {
+            if (!subscribed.equals(room)) {
+                others.add(subscribed);
+            }
+        }
+        if (room != null) {
+            sendLine("/join " + room + (others.isEmpty() ? "" : " " + String.join(",", others)));
+        } else {
+            for (String other : others) {
+                sendLine("/subscribe " + other);
+            }
+        }
+    }
+
+    private long lastSeqFor(String room) {
+        Long seq = room != null ? lastSeqByRoom.get(room) : null;
+        return seq != null ? seq : 0;
+    }
+
+    // Track the highest seq seen per room. Files travel in the bulk lane and
+    // may arrive after newer chat lines, so this is a max, not a filter.
+    private void noteSeq(String room, long seq) {
+        if (seq > lastSeqFor(room)) {
+            lastSeqByRoom.put(room, seq);
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // EDT PUMP - the I/O thread parses and queues, a frame-rate timer
+    // applies whatever is queued in one go (one layout, one scroll)
+    // ═══════════════════════════════════════════════════════════════════
+    // File lines go to the spool; the EDT only hears about finished files
+    private void enqueue(ServerEvent event) {
+        if (event.line.startsWith("FILE")) {
+            FileSpool.Received file = fileSpool.accept(event.line);
+            if (file != null) {
+                inbox.add(new Incoming(event, file));
+            }
+            return;
+        }
+        inbox.add(new Incoming(event, null));
+    }
+
+    private void wakePump() {
+        if (pumpRunning.compareAndSet(false, true)) {
+            pumpTimer.start();
+        }
+    }
+
+    // EDT: apply queued lines until the queue is empty or the frame budget is spent
+    private void drainInbox() {
+        long deadline = System.nanoTime() + PUMP_BUDGET_NANOS;
+        transcript.beginUpdate();
+        try {
+            Incoming next;
+            while ((next = inbox.poll()) != null) {
+                applyServerMessage(next);
+                if (System.nanoTime() >= deadline) {
+                    return;
+                }
+            }
+        } finally {
+            transcript.endUpdate();
+        }
+        // Idle: stop ticking, unless a line slipped in meanwhile
+        pumpTimer.stop();
+        pumpRunning.set(false);
+        if (!inbox.isEmpty()) {
+            wakePump();
+        }
+    }
+
+    // Server event, parsed off the EDT
+    private static final class Incoming {
+        final ServerEvent event;
+        // Finished file (FILE / FILE_END lines only)
+        final FileSpool.Received file;
+
+        Incoming(ServerEvent event, FileSpool.Received file) {
+            this.event = event;
+            this.file = file;
+        }
+    }
+
+    private void applyServerMessage(Incoming incoming) {
+        ServerEvent event = incoming.event;
+        if (incoming.file != null) {
+            deliverFile(incoming.file);
+        } else if (event instanceof ServerEvent.RoomMessage) {
+            ServerEvent.RoomMessage msg = (ServerEvent.RoomMessage) event;
+            noteSeq(msg.room, msg.seq);
+            cacheLine(msg.room, msg.line);
+            if (msg.room.equals(currentRoom)) {
+                if (msg.sender.equals(username)) {
+                    addSentMessage(msg.text, msg.seq);
+                } else {
+                    addReceivedMessage(msg.sender, msg.text, msg.seq);
+                }
+            } else {
+                markUnread(msg.room);
+            }
+        } else if (event instanceof ServerEvent.PrivateMessage) {
+            ServerEvent.PrivateMessage pm = (ServerEvent.PrivateMessage) event;
+            addPrivateMessage(pm.user, pm.text, pm.sent);
+        } else if (event instanceof ServerEvent.Notice) {
+            ServerEvent.Notice notice = (ServerEvent.Notice) event;
+            if (notice.room == null) {
+                addSystemMessage(notice.text);
+            } else if (notice.room.equals(currentRoom)) {
+                // Join/leave in a followed room stays out of the room on screen
+                showRow(TranscriptEntry.system(notice.text));
+            }
+        } else if (event instanceof ServerEvent.Membership) {
+            applyMembership((ServerEvent.Membership) event);
+        } else if (event instanceof ServerEvent.Session) {
+            applySession((ServerEvent.Session) event);
+        } else if (event instanceof ServerEvent.Page) {
+            applyPage((ServerEvent.Page) event);
+        } else {
+            ServerEvent.Other other = (ServerEvent.Other) event;
+            applyOther(other.kind, other.payload);
+        }
+    }
+
+    private void applyMembership(ServerEvent.Membership membership) {
+        String room = membership.room;
+        switch (membership.change) {
+            case JOINED: {
+                // Rejoining the room on screen (e.g. after a reconnect): keep the scroll spot
+                long[] anchor = room.equals(currentRoom) ? transcript.anchor() : null;
+                String previous = currentRoom;
+                if (previous != null && !previous.equals(room) && !followedRooms.contains(previous)
+                        && subscribedRooms.contains(previous)) {
+                    // Only visited, not followed: stop receiving it
+                    sendLine("/leave " + previous);
+                }
+                currentRoom = room;
+                subscribedRooms.add(room);
+                unreadByRoom.remove(room);
+                roomListModel.touch(room);
+                currentRoomLabel.setText("💬 #" + room);
+                transcriptModel.clear();
+                openRoom(room);
+                openingAnchor = anchor;
+                openingBacklog.add(TranscriptEntry.system("✅ Đã tham gia phòng " + room));
+                break;
+            }
+            case SUBSCRIBED:
+                // The GUI only subscribes to rooms it follows
+                subscribedRooms.add(room);
+                followedRooms.add(room);
+                roomListModel.touch(room);
+                break;
+            case LEFT:
+                subscribedRooms.remove(room);
+                followedRooms.remove(room);
+                unreadByRoom.remove(room);
+                roomListModel.touch(room);
+                break;
+        }
+    }
+
+    private void applySession(ServerEvent.Session session) {
+        switch (session.state) {
+            case STARTED:
+                resumeToken = session.token;
+                reconnectAttempts.set(0);
+                break;
+            case RESUMED:
+                reconnectAttempts.set(0);
+                statusLabel.setText("● Đã kết nối");
+                statusLabel.setForeground(ONLINE_DOT);
+                addSystemMessage("🔄 Đã kết nối lại");
+                // Catalog pushes and any /history reply were lost with the old socket
+                requestRoomDelta();
+                transcript.olderRequestLost();
+                if (openingRoom != null) {
+                    // The /since answer was lost with the old socket
+                    sinceLines.clear();
+                    sendLine("/since " + openingRoom + " " + openingSeq);
+                }
+                break;
+            case FAILED:
+                // Session expired on the server: register again
+                resumeToken = null;
+                // Seqs of a new session's rooms may start over
+                lastSeqByRoom.clear();
+                historyCache.unsyncAll();
+                transcript.olderRequestLost();
+                sendLine("USERNAME:" + username);
+                restoreRooms();
+                break;
+        }
+    }
+
+    // HISTORY / SINCE pages and their END lines
+    private void applyPage(ServerEvent.Page page) {
+        if (page.since && page.isEnd()) {
+            if (page.room.equals(openingRoom)) {
+                finishOpening(page.flag, page.epoch);
+            }
+        } else if (page.since) {
+            // Newer than the cached rows, oldest first
+            if (page.message.startsWith("MSG:" + openingRoom + ":")) {
+                sinceLines.add(TranscriptStore.stamp(page.time, page.message));
+            }
+        } else if (page.isEnd()) {
+            serverHistory.end(page.room, page.flag);
+        } else {
+            // One page of older messages, oldest first
+            serverHistory.line(TranscriptStore.stamp(page.time, page.message));
+        }
+    }
+
+    private void applyOther(String kind, String payload) {
+        switch (kind) {
+            case "ROOMS":
+                updateRoomList(payload);
+                break;
+            case "ROOMS_DELTA":
+                applyRoomDelta(payload);
+                break;
+            case "ONLINE":
+                // Member counts arrive separately: the server pushes ROOMS_DELTA
+                updateOnlineUsers(payload);
+                break;
+            case "GAP": {
+                // GAP:room:from:to - the server skipped lines we were too slow for
+                String room = payload.split(":", 3)[0];
+                historyCache.unsync(room);
+                if (room.equals(currentRoom)) {
+                    addSystemMessage("⚠ Bỏ lỡ một số tin nhắn (mạng chậm)");
+                }
+                break;
+            }
+            case "ROOM_CREATED":
+                roomListModel.put(payload);
+                addSystemMessage("[+] New room: " + payload);
+                break;
+            case "ROOM_REMOVED":
+                followedRooms.remove(payload);
+                roomListModel.removeKey(payload);
+                break;
+            case "UPLOAD_FAILED": {
+                FileSender sender = activeUpload;
+                if (sender != null) {
+                    sender.stop(payload);
+                }
+                break;
+            }
+            default:
+                // ROOMS_NOT_MODIFIED and anything newer than this client
+                break;
+        }
+    }
+
+    // Row points at the spooled copy; it may still be being written
+    private void deliverFile(FileSpool.Received file) {
+        noteSeq(file.room, parseSeq(file.seq));
+        // Same placeholder the server keeps in its history
+        cacheLine(file.room, "MSG:" + file.room + ":" + file.seq + ":" + file.sender + ":📎 " + file.name + " ("
+                + file.size + " bytes)");
+        if (file.room.equals(currentRoom)) {
+            showRow(TranscriptEntry.file(file.sender.equals(username), file.sender, file.name,
+                    file.size, file.path, parseSeq(file.seq)));
+        } else {
+            markUnread(file.room);
+        }
+    }
+
+    // Message for a subscribed room that is not on screen
+    private void markUnread(String room) {
+        unreadByRoom.merge(room, 1, Integer::sum);
+        roomListModel.touch(room);
+    }
+
+    // ROOMS:version:page:pages:name=count,...
+    private void updateRoomList(String payload) {
+        String[] parts = payload.split(":", 4);
+        if (parts.length < 4) {
+            return;
+        }
+        long version;
+        int page;
+        int pages;
+        try {
+            version = Long.parseLong(parts[0]);
+            page = Integer.parseInt(parts[1]);
+            pages = Integer.parseInt(parts[2]);
+        } catch (NumberFormatException e) {
+            // Malformed frame: skip it rather than stall the pump
+            return;
+        }
+        if (page == 0) {
+            roomCatalogVersion = version;
+            roomPages.clear();
+        }
+        if (!parts[3].isEmpty()) {
+            roomPages.addAll(Arrays.asList(parts[3].split(",")));
+        }
+        if (page + 1 < pages) {
+            sendLine("/rooms page " + (page + 1));
+            return;
+        }
+        // Whole catalog in hand: apply only the difference
+        List<String> names = new ArrayList<>(roomPages.size());
+        roomMemberCounts.clear();
+        for (String entry : roomPages) {
+            String[] kv = entry.split("=", 2);
+            names.add(kv[0]);
+            int count = kv.length > 1 ? parseCount(kv[1]) : -1;
+            if (count >= 0) {
+                roomMemberCounts.put(kv[0], count);
+            }
+        }
+        roomPages.clear();
+        roomListModel.sync(names);
+        // Counts live outside the model
+        roomList.repaint();
+    }
+
+    // ROOMS_DELTA:version:+name=count,-name
+    private void applyRoomDelta(String payload) {
+        String[] parts = payload.split(":", 2);
+        if (parts.length < 2) {
+            return;
+        }
+        try {
+            roomCatalogVersion = Long.parseLong(parts[0]);
+        } catch (NumberFormatException e) {
+            return;
+        }
+        if (parts[1].isEmpty()) {
+            return;
+        }
+        for (String entry : parts[1].split(",")) {
+            if (entry.startsWith("+")) {
+                putRoom(entry.substring(1));
+            } else if (entry.startsWith("-")) {
+                String room = entry.substring(1);
+                roomListModel.removeKey(room);
+                roomMemberCounts.remove(room);
+            }
+        }
+    }
+
+    private void putRoom(String entry) {
+        String[] kv = entry.split("=", 2);
+        roomListModel.put(kv[0]);
+        int count = kv.length > 1 ? parseCount(kv[1]) : -1;
+        if (count >= 0) {
+            Integer old = roomMemberCounts.put(kv[0], count);
+            if (old == null || old != count) {
+                roomListModel.touch(kv[0]);
+            }
+        }
+    }
+
+    // Member count from a catalog entry, or -1 if it is not a number
+    private static int parseCount(String text) {
+        try {
+            return Integer.parseInt(text);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private void requestRoomDelta() {
+        if (connected && client != null && roomCatalogVersion > 0) {
+            sendLine("/rooms since " + roomCatalogVersion);
+        }
+    }
+
+    // Full list on every presence change; only the rows that differ are touched
+    private void updateOnlineUsers(String users) {
+        userListModel.sync(users.isEmpty() ? Collections.<String>emptyList() : Arrays.asList(users.split(",")));
+    }
+
+    private void joinRoom(String room) {
+        if (connected && client != null) {
+            sendLine("/join " + room);
+        }
+    }
+
+    // Right-click a room: follow (keep receiving it while in other rooms) or unfollow
+    private void showRoomMenu(MouseEvent e) {
+        if (!e.isPopupTrigger()) {
+            return;
+        }
+        int index = roomList.locationToIndex(e.getPoint());
+        if (index < 0 || !roomList.getCellBounds(index, index).contains(e.getPoint())) {
+            return;
+        }
+        String room = roomListModel.getElementAt(index);
+        JPopupMenu menu = new JPopupMenu();
+        if (followedRooms.contains(room)) {
+            JMenuItem unfollow = new JMenuItem("☆ Bỏ theo dõi #" + room);
+            unfollow.addActionListener(a -> unfollowRoom(room));
+            menu.add(unfollow);
+        } else {
+            JMenuItem follow = new JMenuItem("★ Theo dõi #" + room);
+            follow.addActionListener(a -> followRoom(room));
+            menu.add(follow);
+        }
+        menu.show(roomList, e.getX(), e.getY());
+    }
+
+    private void followRoom(String room) {
+        followedRooms.add(room);
+        roomListModel.touch(room);
+        if (!subscribedRooms.contains(room)) {
+            sendLine("/subscribe " + room);
+        }
+    }
+
+    private void unfollowRoom(String room) {
+        followedRooms.remove(room);
+        roomListModel.touch(room);
+        // The room on screen stays joined until the user moves on
+        if (!room.equals(currentRoom) && subscribedRooms.contains(room)) {
+            sendLine("/leave " + room);
+        }
+    }
+
+    private void disconnect() {
+        try {
+            userQuit = true;
+            ChatClient c = client;
+            if (c != null) {
+                // Give /quit a moment to go out before the socket closes
+                c.send("/quit").get(500, TimeUnit.MILLISECONDS);
+                c.close();
+            }
+        } catch (Exception ignored) {
+        }
+    }
+
+    private void sendMessage() {
+        String message = inputField.getText().trim();
+        if (message.isEmpty() || !connected || currentRoom == null)
+            return;
+        sendLine(message);
+        inputField.setText("");
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // MESSAGE BUBBLES
+    // ═══════════════════════════════════════════════════════════════════
+    private void addSentMessage(String message, long seq) {
+        showRow(TranscriptEntry.message(true, username, message, seq));
+    }
+
+    private void addReceivedMessage(String sender, String message, long seq) {
+        showRow(TranscriptEntry.message(false, sender, message, seq));
+    }
+
+    // Row for the current room; held back while the room is being opened
+    private void showRow(TranscriptEntry entry) {
+        if (openingRoom != null) {
+            openingBacklog.add(entry);
+        } else {
+            transcriptModel.append(entry);
+        }
+    }
+
+    private void addPrivateMessage(String user, String message, boolean sent) {
+        String prefix = sent ? "📤 To " + user : "📥 From " + user;
+        transcriptModel.append(TranscriptEntry.privateMessage(sent, prefix, message));
+    }
+
+    private void addSystemMessage(String message) {
+        transcriptModel.append(TranscriptEntry.system(message));
+    }
+
+    private long parseSeq(String seq) {
+        try {
+            return Long.parseLong(seq);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    // History line (time:MSG:room:seq:sender:content) as a transcript row
+    private TranscriptEntry entryFromLine(String stamped) {
+        String line = TranscriptStore.lineOf(stamped);
+        if (!line.startsWith("MSG:")) {
+            return null;
+        }
+        String[] parts = line.substring(4).split(":", 4);
+        if (parts.length < 4) {
+            return null;
+        }
+        long time = TranscriptStore.timeOf(stamped);
+        return TranscriptEntry.message(parts[2].equals(username), parts[2], parts[3], parseSeq(parts[1]),
+                time > 0 ? time : System.currentTimeMillis());
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // ROOM OPENING - cached rows at once, then only what the server has
+    // that is newer than the cache
+    // ═══════════════════════════════════════════════════════════════════
+    private void openRoom(String room) {
+        openingRoom = room;
+        openingSeq = 0;
+        openingBacklog.clear();
+        openingLines.clear();
+        sinceLines.clear();
+        // Live lines are held in openingLines until the cache has caught up
+        historyCache.unsync(room);
+        historyCache.recent(room, OPEN_ROWS, (lines, lastSeq, epoch) -> {
+            if (!room.equals(openingRoom)) {
+                return;
+            }
+            transcript.beginUpdate();
+            try {
+                appendLines(lines);
+            } finally {
+                transcript.endUpdate();
+            }
+            sendLine("/since " + room + " " + lastSeq + " " + epoch);
+        });
+    }
+
+    // epoch = the server room's incarnation; the cache adopts it
+    private void finishOpening(boolean gap, long epoch) {
+        String room = openingRoom;
+        if (gap) {
+            // Too much was missed to join the cache up with the server, or the
+            // cache is from before the room restarted (its seqs mean nothing now)
+            historyCache.forget(room);
+            transcriptModel.clear();
+            openingSeq = 0;
+            lastSeqByRoom.remove(room);
+        }
+        historyCache.markSynced(room, epoch);
+        transcript.beginUpdate();
+        try {
+            appendLines(sinceLines);
+            for (String line : sinceLines) {
+                historyCache.append(line);
+                TranscriptEntry entry = entryFromLine(line);
+                if (entry != null) {
+                    noteSeq(room, entry.seq);
+                }
+            }
+            for (String line : openingLines) {
+                historyCache.append(line);
+            }
+            for (TranscriptEntry entry : openingBacklog) {
+                if (entry.kind != TranscriptEntry.Kind.MESSAGE || entry.seq > openingSeq) {
+                    transcriptModel.append(entry);
+                }
+            }
+        } finally {
+            transcript.endUpdate();
+        }
+        if (openingAnchor != null) {
+            transcript.restoreAnchor(openingAnchor);
+            openingAnchor = null;
+        }
+        openingRoom = null;
+        openingBacklog.clear();
+        openingLines.clear();
+        sinceLines.clear();
+    }
+
+    private void appendLines(List<String> lines) {
+        for (String line : lines) {
+            TranscriptEntry entry = entryFromLine(line);
+            if (entry != null && entry.seq > openingSeq) {
+                transcriptModel.append(entry);
+                openingSeq = entry.seq;
+            }
+        }
+    }
+
+    // Live line: received now, so that is its send time
+    private void cacheLine(String room, String line) {
+        String stamped = TranscriptStore.stamp(System.currentTimeMillis(), line);
+        if (room.equals(openingRoom)) {
+            openingLines.add(stamped);
+        } else {
+            historyCache.append(stamped);
+        }
+    }
+
+    // Scrolled to the top: fetch the page before the oldest row on screen
+    private void loadOlderMessages() {
+        String room = currentRoom;
+        if (room == null || !connected) {
+            transcript.olderLoaded(false);
+            return;
+        }
+        if (openingRoom != null) {
+            // Try again once the room is on screen
+            transcript.olderLoaded(true);
+            return;
+        }
+        transcriptStore.loadBefore(room, transcriptModel.oldestSeq(), HISTORY_PAGE, (lines, more) -> {
+            if (!room.equals(currentRoom)) {
+                return;
+            }
+            List<TranscriptEntry> older = new ArrayList<>();
+            for (String line : lines) {
+                TranscriptEntry entry = entryFromLine(line);
+                if (entry != null) {
+                    older.add(entry);
+                }
+            }
+            transcriptModel.prepend(older);
+            transcript.olderLoaded(more);
+        });
+    }
+
+    // Older pages straight from the server's room history (/history)
+    private class ServerTranscriptStore implements TranscriptStore {
+        private final Map<String, Callback> pending = new HashMap<>();
+        private final Map<String, List<String>> received = new HashMap<>();
+
+        @Override
+        public void loadBefore(String room, long beforeSeq, int limit, Callback callback) {
+            pending.put(room, callback);
+            received.put(room, new ArrayList<>());
+            sendLine("/history " + room + " " + (beforeSeq == Long.MAX_VALUE ? 0 : beforeSeq) + " " + limit);
+        }
+
+        void line(String line) {
+            String[] parts = TranscriptStore.lineOf(line).split(":", 3);
+            List<String> lines = parts.length >= 2 ? received.get(parts[1]) : null;
+            if (lines != null) {
+                lines.add(line);
+            }
+        }
+
+        void end(String room, boolean more) {
+            Callback callback = pending.remove(room);
+            List<String> lines = received.remove(room);
+            if (callback != null) {
+                callback.loaded(lines, more);
+            }
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // TRANSCRIPT ROWS - one reusable component tree per row kind, filled
+    // in for whichever entry is being measured or painted
+    // ═══════════════════════════════════════════════════════════════════
+    private class TranscriptRowRenderer implements ChatTranscript.RowRenderer {
+        private final Color pmSentBg = new Color(255, 140, 0, 200);
+        private final Color pmReceivedBg = new Color(255, 100, 100, 200);
+        private final Color bubbleEdge = new Color(255, 255, 255, 30);
+        private final Color iconCorner = new Color(255, 255, 255, 150);
+        private final Color sentSizeColor = new Color(200, 200, 255);
+
+        private Color bubbleColor;
+
+        // Text messages, PMs and system notices: painted by BubblePainter
+        private final BubbleRow bubbleRow = new BubbleRow();
+        private final BubblePainter painter = new BubblePainter(bubbleRow);
+
+        // File
+        private final JPanel fileRow = new JPanel(new FlowLayout(FlowLayout.LEFT, 0, 5));
+        private final JPanel fileBubble = createBubble(new BorderLayout(8, 4), 10);
+        private final JLabel fileSenderLabel = new JLabel();
+        private final JLabel fileNameLabel = new JLabel();
+        private final JLabel fileSizeLabel = new JLabel();
+
+        TranscriptRowRenderer() {
+            fileRow.setOpaque(false);
+            fileSenderLabel.setForeground(ACCENT_SECONDARY);
+            fileSenderLabel.setFont(BubblePainter.SENDER_FONT);
+            fileBubble.add(fileSenderLabel, BorderLayout.NORTH);
+            fileBubble.add(createFilePanel(), BorderLayout.CENTER);
+            fileRow.add(fileBubble);
+        }
+
+        // One row drawn straight onto the transcript's Graphics
+        private class BubbleRow extends JComponent {
+            private TranscriptEntry entry;
+            private int rowWidth;
+
+            @Override
+            public Dimension getPreferredSize() {
+                return new Dimension(rowWidth, painter.rowHeight(entry, rowWidth));
+            }
+
+            @Override
+            protected void paintComponent(Graphics g) {
+                Graphics2D g2 = (Graphics2D) g;
+                g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+                g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+                if (entry.kind == TranscriptEntry.Kind.SYSTEM) {
+                    painter.paintSystem(g2, entry, rowWidth, textDim);
+                    return;
+                }
+                Color background;
+                if (entry.kind == TranscriptEntry.Kind.PRIVATE) {
+                    background = entry.mine ? pmSentBg : pmReceivedBg;
+                } else {
+                    background = entry.mine ? MSG_SENT_BG : msgReceivedBg;
+                }
+                painter.paintBubble(g2, entry, rowWidth, background, entry.mine ? Color.WHITE : textPrimary,
+                        ACCENT_SECONDARY);
+            }
+        }
+
+        private JPanel createBubble(LayoutManager layout, int padding) {
+            JPanel bubble = new JPanel(layout) {
+                @Override
+                protected void paintComponent(Graphics g) {
+                    Graphics2D g2 = (Graphics2D) g.create();
+                    g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+                    g2.setColor(bubbleColor);
+                    g2.fillRoundRect(0, 0, getWidth(), getHeight(), 18, 18);
+                    g2.setColor(bubbleEdge);
+                    g2.drawRoundRect(0, 0, getWidth() - 1, getHeight() - 1, 18, 18);
+                    g2.dispose();
+                }
+            };
+            bubble.setOpaque(false);
+            bubble.setBorder(BorderFactory.createEmptyBorder(padding, 14, padding, 14));
+            return bubble;
+        }
+
+        private JPanel createFilePanel() {
+            JPanel filePanel = new JPanel(new BorderLayout(10, 0));
+            filePanel.setOpaque(false);
+
+            // File icon
+            JPanel fileIcon = new JPanel() {
+                @Override
+                protected void paintComponent(Graphics g) {
+                    Graphics2D g2 = (Graphics2D) g.create();
+                    g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+                    // Draw file icon
+                    g2.setColor(ACCENT_PRIMARY);
+                    g2.fillRoundRect(5, 2, 20, 26, 4, 4);
+                    // Folded corner
+                    g2.setColor(iconCorner);
+                    int[] xp = { 17, 25, 25 };
+                    int[] yp = { 2, 2, 10 };
+                    g2.fillPolygon(xp, yp, 3);
+                    g2.dispose();
+                }
+
+                @Override
+                public Dimension getPreferredSize() {
+                    return new Dimension(30, 30);
+                }
+            };
+            fileIcon.setOpaque(false);
+
+            // File name and size
+            JPanel fileInfo = new JPanel(new GridLayout(2, 1));
+            fileInfo.setOpaque(false);
+            fileNameLabel.setFont(new Font("Segoe UI", Font.BOLD, 13));
+            fileSizeLabel.setFont(new Font("Segoe UI", Font.PLAIN, 11));
+            fileInfo.add(fileNameLabel);
+            fileInfo.add(fileSizeLabel);
+
+            // "Save" - the whole row is clickable (see ChatTranscript click listener)
+            JLabel saveLabel = new JLabel("Save", SwingConstants.CENTER) {
+                @Override
+                protected void paintComponent(Graphics g) {
+                    Graphics2D g2 = (Graphics2D) g.create();
+                    g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+                    g2.setColor(ACCENT_PRIMARY);
+                    g2.fillRoundRect(0, 0, getWidth(), getHeight(), 12, 12);
+                    g2.dispose();
+                    super.paintComponent(g);
+                }
+            };
+            saveLabel.setForeground(Color.WHITE);
+            saveLabel.setFont(new Font("Segoe UI", Font.BOLD, 11));
+            saveLabel.setPreferredSize(new Dimension(50, 25));
+
+            filePanel.add(fileIcon, BorderLayout.WEST);
+            filePanel.add(fileInfo, BorderLayout.CENTER);
+            filePanel.add(saveLabel, BorderLayout.EAST);
+            return filePanel;
+        }
+
+        @Override
+        public Component rowComponent(TranscriptEntry entry, int width) {
+            switch (entry.kind) {
+                case FILE:
+                    ((FlowLayout) fileRow.getLayout()).setAlignment(entry.mine ? FlowLayout.RIGHT : FlowLayout.LEFT);
+                    bubbleColor = entry.mine ? MSG_SENT_BG : msgReceivedBg;
+                    fileSenderLabel.setText(entry.sender);
+                    fileSenderLabel.setVisible(!entry.mine);
+                    fileNameLabel.setText(entry.fileName);
+                    fileNameLabel.setForeground(entry.mine ? Color.WHITE : textPrimary);
+                    fileSizeLabel.setText(formatFileSize(entry.fileSize));
+                    fileSizeLabel.setForeground(entry.mine ? sentSizeColor : textDim);
+                    return fileRow;
+
+                default:
+                    bubbleRow.entry = entry;
+                    bubbleRow.rowWidth = width;
+                    return bubbleRow;
+            }
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // CUSTOM LIST RENDERERS
+    // ═══════════════════════════════════════════════════════════════════
+    private class RoomListCellRenderer extends DefaultListCellRenderer {
+        @Override
+        public Component getListCellRendererComponent(JList<?> list, Object value,
+                int index, boolean isSelected, boolean cellHasFocus) {
+            JLabel label = (JLabel) super.getListCellRendererComponent(list, value, index, isSelected, cellHasFocus);
+            Integer members = roomMemberCounts.get(value.toString());
+            Integer unread = unreadByRoom.get(value.toString());
+            label.setText((followedRooms.contains(value.toString()) ? "★ # " : "  # ") + value + (members != null && members > 0 ? "  (" + members + ")" : "")
+                    + (unread != null ? "  • " + unread : ""));
+            label.setOpaque(false);
+            label.setForeground(isSelected ? Color.WHITE : textPrimary);
+            label.setBorder(BorderFactory.createEmptyBorder(8, 5, 8, 5));
+            if (isSelected) {
+                label.setOpaque(true);
+                label.setBackground(
+                        new Color(ACCENT_PRIMARY.getRed(), ACCENT_PRIMARY.getGreen(), ACCENT_PRIMARY.getBlue(), 100));
+            }
+            return label;
+        }
+    }
+
+    private class UserListCellRenderer extends DefaultListCellRenderer {
+        @Override
+        public Component getListCellRendererComponent(JList<?> list, Object value,
+                int index, boolean isSelected, boolean cellHasFocus) {
+            JLabel label = (JLabel) super.getListCellRendererComponent(list, value, index, isSelected, cellHasFocus);
+            String displayName = onlineName(value.toString());
+            label.setText("  ● " + displayName);
+            label.setOpaque(false);
+            label.setForeground(isSelected ? Color.WHITE : ONLINE_DOT);
+            label.setBorder(BorderFactory.createEmptyBorder(6, 5, 6, 5));
+            if (displayName.equals(username)) {
+                label.setText("  ● " + displayName + " (you)");
+                label.setForeground(ACCENT_SECONDARY);
+            }
+            return label;
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // MAIN
+    // ═══════════════════════════════════════════════════════════════════
+    public static void main(String[] args) {
+        try {
+            UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
+        } catch (Exception ignored) {
+        }
+        SwingUtilities.invokeLater(ChatClientGUI::new);
+    }
+}
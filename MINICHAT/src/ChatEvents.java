@@ -0,0 +1,113 @@
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// Java Flight Recorder events for the server. Without a recording these
+// cost a branch: instant events are only filled in after isEnabled(),
+// timed ones after shouldCommit() (which also applies the threshold).
+//   java -XX:StartFlightRecording:filename=chat.jfr,settings=profile Server
+//   jfr print --events minichat.Broadcast chat.jfr
+public class ChatEvents {
+
+    @Name("minichat.Connection")
+    @Label("Connection")
+    @Category("MiniChat")
+    @StackTrace(false)
+    public static class Connection extends Event {
+        @Label("Action")
+        public String action;
+        @Label("User")
+        public String user;
+        @Label("Address")
+        public String address;
+    }
+
+    @Name("minichat.RoomMembership")
+    @Label("Room Membership")
+    @Category("MiniChat")
+    @StackTrace(false)
+    public static class RoomMembership extends Event {
+        @Label("Action")
+        public String action;
+        @Label("User")
+        public String user;
+        @Label("Room")
+        public String room;
+        @Label("Members")
+        public int members;
+    }
+
+    @Name("minichat.Broadcast")
+    @Label("Broadcast")
+    @Category("MiniChat")
+    @StackTrace(false)
+    public static class Broadcast extends Event {
+        @Label("Room")
+        public String room;
+        @Label("Members")
+        public int members;
+        @Label("Line Size")
+        @DataAmount
+        public long bytes;
+    }
+
+    @Name("minichat.PrivateMessage")
+    @Label("Private Message Lookup")
+    @Category("MiniChat")
+    @StackTrace(false)
+    public static class PrivateMessage extends Event {
+        @Label("Sender")
+        public String sender;
+        @Label("Target")
+        public String target;
+        @Label("Found")
+        public boolean found;
+        @Label("Clients Scanned")
+        public int scanned;
+    }
+
+    @Name("minichat.FileTransfer")
+    @Label("File Transfer")
+    @Category("MiniChat")
+    @StackTrace(false)
+    public static class FileTransfer extends Event {
+        @Label("Room")
+        public String room;
+        @Label("Sender")
+        public String sender;
+        @Label("File Name")
+        public String fileName;
+        @Label("Declared Size")
+        @DataAmount
+        public long declaredSize;
+        @Label("Base64 Received")
+        @DataAmount
+        public long received;
+        @Label("Outcome")
+        public String outcome;
+    }
+
+    public static void connection(String action, ClientHandler client, String address) {
+        Connection event = new Connection();
+        if (event.isEnabled()) {
+            event.action = action;
+            event.user = client.getUsername();
+            event.address = address;
+            event.commit();
+        }
+    }
+
+    public static void membership(String action, ClientHandler client, Room room) {
+        RoomMembership event = new RoomMembership();
+        if (event.isEnabled()) {
+            event.action = action;
+            event.user = client.getUsername();
+            event.room = room.getName();
+            event.members = room.getMembers().size();
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,356 @@
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+// Virtualized transcript view: one component for the whole room, rows are
+// painted through a shared renderer and only the rows inside the clip are
+// drawn. Row heights are cached per entry (for the width they were measured
+// at) and turned into prefix sums, so finding the visible rows is a binary
+// search. Scrolling near the top asks for older rows.
+public class ChatTranscript extends JComponent implements Scrollable, TranscriptModel.Listener {
+
+    public interface RowRenderer {
+        // Component laid out and painted for entry at the given width
+        Component rowComponent(TranscriptEntry entry, int width);
+    }
+
+    private static final int LOAD_OLDER_PX = 150;
+
+    private final TranscriptModel model;
+    private final RowRenderer renderer;
+    private final CellRendererPane rendererPane = new CellRendererPane();
+
+    // tops[i] = y of row i, tops[size] = total height (valid up to measured)
+    private int[] tops = new int[256];
+    private int measured = 0;
+    private int measuredWidth = -1;
+
+    private Runnable olderLoader;
+    private boolean loadingOlder = false;
+    private boolean noOlder = false;
+    private boolean scrollPending = false;
+    private boolean watchingViewport = false;
+
+    // Between beginUpdate/endUpdate appends only mark the view dirty
+    private int updateDepth = 0;
+    private boolean dirty = false;
+    private boolean followPending = false;
+    private Consumer<TranscriptEntry> clickListener;
+
+    public ChatTranscript(TranscriptModel model, RowRenderer renderer) {
+        this.model = model;
+        this.renderer = renderer;
+        setOpaque(false);
+        setLayout(null);
+        add(rendererPane);
+        model.addListener(this);
+
+        MouseAdapter mouse = new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int row = rowAt(e.getY());
+                if (row >= 0 && clickListener != null) {
+                    clickListener.accept(model.get(row));
+                }
+            }
+
+            @Override
+            public void mouseMoved(MouseEvent e) {
+                int row = rowAt(e.getY());
+                boolean file = row >= 0 && model.get(row).kind == TranscriptEntry.Kind.FILE;
+                setCursor(file ? Cursor.getPredefinedCursor(Cursor.HAND_CURSOR) : null);
+            }
+        };
+        addMouseListener(mouse);
+        addMouseMotionListener(mouse);
+    }
+
+    public void setClickListener(Consumer<TranscriptEntry> clickListener) {
+        this.clickListener = clickListener;
+    }
+
+    // Called (once at a time) when the top is reached; answer with olderLoaded()
+    public void setOlderLoader(Runnable olderLoader) {
+        this.olderLoader = olderLoader;
+    }
+
+    public void olderLoaded(boolean more) {
+        loadingOlder = false;
+        noOlder = !more;
+    }
+
+    // Connection dropped: a page request in flight will never be answered
+    public void olderRequestLost() {
+        if (loadingOlder) {
+            loadingOlder = false;
+            SwingUtilities.invokeLater(this::maybeLoadOlder);
+        }
+    }
+
+    // ════════════════════════════════════════════════════════════════════
+    // ROW GEOMETRY
+    // ════════════════════════════════════════════════════════════════════
+    private int layoutWidth() {
+        Container parent = getParent();
+        int width = parent instanceof JViewport ? parent.getWidth() : getWidth();
+        return Math.max(width, 1);
+    }
+
+    private int rowHeight(TranscriptEntry entry, int width) {
+        if (entry.heightWidth != width) {
+            Component row = renderer.rowComponent(entry, width);
+            entry.height = row.getPreferredSize().height;
+            entry.heightWidth = width;
+        }
+        return entry.height;
+    }
+
+    // Extend the prefix sums to cover every row at the current width
+    private void measure() {
+        int width = layoutWidth();
+        if (width != measuredWidth) {
+            measuredWidth = width;
+            measured = 0;
+        }
+        int size = model.size();
+        if (tops.length < size + 1) {
+            tops = Arrays.copyOf(tops, Math.max(size + 1, tops.length * 2));
+        }
+        for (int i = measured; i < size; i++) {
+            tops[i + 1] = tops[i] + rowHeight(model.get(i), width);
+        }
+        measured = size;
+    }
+
+    private int totalHeight() {
+        measure();
+        return tops[model.size()];
+    }
+
+    private int rowAt(int y) {
+        measure();
+        int size = model.size();
+        if (size == 0 || y < 0 || y >= tops[size]) {
+            return -1;
+        }
+        int lo = 0;
+        int hi = size - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (tops[mid] <= y) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return lo;
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        return new Dimension(layoutWidth(), totalHeight());
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        int width = getWidth();
+        Rectangle clip = g.getClipBounds();
+        int first = rowAt(clip.y);
+        if (first < 0) {
+            return;
+        }
+        int size = model.size();
+        for (int i = first; i < size && tops[i] < clip.y + clip.height; i++) {
+            Component row = renderer.rowComponent(model.get(i), width);
+            rendererPane.paintComponent(g, row, this, 0, tops[i], width, tops[i + 1] - tops[i], true);
+        }
+        rendererPane.removeAll();
+    }
+
+    // ════════════════════════════════════════════════════════════════════
+    // MODEL EVENTS
+    // ════════════════════════════════════════════════════════════════════
+    private boolean atBottom() {
+        Rectangle view = getVisibleRect();
+        return view.y + view.height >= getHeight() - 20;
+    }
+
+    // Group many model changes into one layout pass and at most one scroll
+    public void beginUpdate() {
+        updateDepth++;
+    }
+
+    public void endUpdate() {
+        if (--updateDepth > 0 || !dirty) {
+            return;
+        }
+        dirty = false;
+        revalidate();
+        repaint();
+        if (followPending) {
+            followPending = false;
+            scrollToBottom();
+        }
+    }
+
+    @Override
+    public void rowsAppended(int first, int count) {
+        if (updateDepth > 0) {
+            // Decide on the first append, before the view has grown
+            if (!dirty) {
+                followPending = atBottom();
+            }
+            dirty = true;
+            return;
+        }
+        boolean follow = atBottom();
+        revalidate();
+        repaint();
+        if (follow) {
+            scrollToBottom();
+        }
+    }
+
+    @Override
+    public void rowsPrepended(int count) {
+        int before = tops[measured];
+        measured = 0;
+        int added = totalHeight() - before;
+        keepViewAnchored(added);
+    }
+
+    @Override
+    public void rowsTrimmed(int count) {
+        int removed = count <= measured ? tops[count] : 0;
+        measured = 0;
+        keepViewAnchored(-removed);
+    }
+
+    @Override
+    public void rowsReset() {
+        measured = 0;
+        loadingOlder = false;
+        noOlder = false;
+        revalidate();
+        repaint();
+        SwingUtilities.invokeLater(this::maybeLoadOlder);
+    }
+
+    // Rows changed above the view: shift it so the same messages stay put
+    private void keepViewAnchored(int deltaY) {
+        Container parent = getParent();
+        setSize(layoutWidth(), totalHeight());
+        if (parent instanceof JViewport && deltaY != 0) {
+            JViewport viewport = (JViewport) parent;
+            Point position = viewport.getViewPosition();
+            position.y = Math.max(0, position.y + deltaY);
+            viewport.setViewPosition(position);
+        }
+        revalidate();
+        repaint();
+    }
+
+    // Coalesced: a burst of appends scrolls once
+    public void scrollToBottom() {
+        if (scrollPending) {
+            return;
+        }
+        scrollPending = true;
+        SwingUtilities.invokeLater(() -> {
+            scrollPending = false;
+            Container parent = getParent();
+            if (parent instanceof JViewport) {
+                parent.validate();
+                scrollRectToVisible(new Rectangle(0, Math.max(0, getHeight() - 1), 1, 1));
+            }
+        });
+    }
+
+    // Where the view is: {seq of the first room message in view, pixels it
+    // starts above the view top}, or null when following the bottom
+    public long[] anchor() {
+        if (atBottom()) {
+            return null;
+        }
+        Rectangle view = getVisibleRect();
+        int size = model.size();
+        for (int row = Math.max(0, rowAt(view.y)); row < size && tops[row] < view.y + view.height; row++) {
+            long seq = model.get(row).seq;
+            if (seq > 0) {
+                return new long[] { seq, view.y - tops[row] };
+            }
+        }
+        return null;
+    }
+
+    // Put the anchored message back where it was, if it is still loaded
+    public void restoreAnchor(long[] anchor) {
+        SwingUtilities.invokeLater(() -> {
+            Container parent = getParent();
+            if (!(parent instanceof JViewport)) {
+                return;
+            }
+            parent.validate();
+            measure();
+            for (int row = 0; row < model.size(); row++) {
+                if (model.get(row).seq == anchor[0]) {
+                    JViewport viewport = (JViewport) parent;
+                    int maxY = Math.max(0, getHeight() - viewport.getHeight());
+                    int y = (int) Math.max(0, Math.min(maxY, tops[row] + anchor[1]));
+                    viewport.setViewPosition(new Point(0, y));
+                    return;
+                }
+            }
+        });
+    }
+
+    private void maybeLoadOlder() {
+        if (olderLoader == null || loadingOlder || noOlder || model.isFull()) {
+            return;
+        }
+        if (getVisibleRect().y < LOAD_OLDER_PX) {
+            loadingOlder = true;
+            olderLoader.run();
+        }
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        if (getParent() instanceof JViewport && !watchingViewport) {
+            watchingViewport = true;
+            ((JViewport) getParent()).addChangeListener(e -> maybeLoadOlder());
+        }
+    }
+
+    // ════════════════════════════════════════════════════════════════════
+    // SCROLLABLE
+    // ════════════════════════════════════════════════════════════════════
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+        return getPreferredSize();
+    }
+
+    @Override
+    public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return 16;
+    }
+
+    @Override
+    public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return Math.max(16, visibleRect.height - 16);
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+        return true;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+        return false;
+    }
+}
@@ -0,0 +1,32 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+
+// Byte pipe under a ChatClient (TCP by default; tests or tunnels can plug in
+// their own). Handler callbacks for one transport come from one thread.
+public interface ChatTransport {
+
+    interface Handler {
+        void opened();
+
+        // data is only valid during the call
+        void received(ByteBuffer data);
+
+        // Every queued write has gone out
+        void drained();
+
+        // cause is null for a clean EOF or close()
+        void closed(IOException cause);
+    }
+
+    void open(Handler handler);
+
+    // Queue data; done completes once it is all written (exceptionally if the
+    // transport closes first). Writes before opened() wait for the connection.
+    void write(ByteBuffer data, CompletableFuture<Void> done);
+
+    // Bytes queued and not yet written
+    long pendingBytes();
+
+    void close();
+}
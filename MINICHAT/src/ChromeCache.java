@@ -0,0 +1,45 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+// Pre-rendered chrome for one component. The antialiased shapes and gradients
+// are drawn once into a translucent image compatible with the screen, and
+// later paints just copy that image. It is redrawn only when the component's
+// size or the theme changes.
+public class ChromeCache {
+
+    public interface Painter {
+        void paint(Graphics2D g2, int width, int height);
+    }
+
+    private final Painter painter;
+    private BufferedImage image;
+    private boolean imageDark;
+
+    public ChromeCache(Painter painter) {
+        this.painter = painter;
+    }
+
+    public void paint(Component owner, Graphics g, boolean dark) {
+        int width = owner.getWidth();
+        int height = owner.getHeight();
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+        if (image == null || image.getWidth() != width || image.getHeight() != height || imageDark != dark) {
+            image = render(owner.getGraphicsConfiguration(), width, height);
+            imageDark = dark;
+        }
+        g.drawImage(image, 0, 0, null);
+    }
+
+    private BufferedImage render(GraphicsConfiguration gc, int width, int height) {
+        BufferedImage rendered = gc != null
+                ? gc.createCompatibleImage(width, height, Transparency.TRANSLUCENT)
+                : new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+        Graphics2D g2 = rendered.createGraphics();
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        painter.paint(g2, width, height);
+        g2.dispose();
+        return rendered;
+    }
+}
@@ -1,61 +1,63 @@
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.io.PrintWriter;
-import java.net.Socket;
-import java.util.Scanner;
-
-public class Client {
-
-    // IP của Server. "127.0.0.1" (hoặc "localhost") có nghĩa là
-    // Server đang chạy trên CÙNG MÁY TÍNH với Client.
-    private static final String SERVER_IP = "127.0.0.1";
-    private static final int SERVER_PORT = 9999; // Phải khớp với cổng của Server
-
-    public static void main(String[] args) {
-        try {
-            // 1. Kết nối đến Server
-            Socket socket = new Socket(SERVER_IP, SERVER_PORT);
-            System.out.println("Đã kết nối tới MiniChat Server!");
-
-            // 2. Tạo luồng để ĐỌC tin nhắn TỪ Server
-            BufferedReader serverIn = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-            
-            // 3. Tạo luồng để GỬI tin nhắn TỚI Server
-            PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
-
-            // 4. Tạo một luồng (Thread) riêng chỉ để lắng nghe tin nhắn từ Server
-            Thread readThread = new Thread(() -> {
-                try {
-                    String serverMessage;
-                    while ((serverMessage = serverIn.readLine()) != null) {
-                        // In tin nhắn của Server ra màn hình
-                        System.out.println(serverMessage);
-                    }
-                } catch (Exception e) {
-                    System.out.println("Mất kết nối với Server.");
-                }
-            });
-            readThread.start(); // Bắt đầu chạy luồng đọc
-
-            // 5. Luồng main (luồng chính) sẽ đọc tin nhắn từ bàn phím và gửi đi
-            Scanner sc = new Scanner(System.in);
-            System.out.println("Nhập tin nhắn của bạn (gõ 'bye' để thoát):");
-            
-            while (true) {
-                String myMessage = sc.nextLine(); // Đọc tin nhắn từ bàn phím
-                out.println(myMessage); // Gửi tin nhắn đó lên Server
-
-                if ("bye".equalsIgnoreCase(myMessage)) {
-                    break; // Nếu gõ 'bye' thì thoát vòng lặp
-                }
-            }
-
-            // Đóng kết nối
-            sc.close();
-            socket.close();
-
-        } catch (Exception e) {
-            System.err.println("Không thể kết nối tới Server: " + e.getMessage());
-        }
-    }
+import java.io.IOException;
+import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
+
+public class Client {
+
+    // IP của Server. "127.0.0.1" (hoặc "localhost") có nghĩa là
+    // Server đang chạy trên CÙNG MÁY TÍNH với Client.
+    private static final String SERVER_IP = "127.0.0.1";
+    private static final int SERVER_PORT = 9999; // Phải khớp với cổng của Server
+
+    public static void main(String[] args) {
+        // 1. Kết nối đến Server (ChatClient làm việc mạng trên luồng I/O riêng)
+        CompletableFuture<Void> ready = new CompletableFuture<>();
+        ChatClient client = ChatClient.tcp(SERVER_IP, SERVER_PORT, new ChatClient.Listener() {
+            @Override
+            public void connected(ChatClient c) {
+                ready.complete(null);
+            }
+
+            // 2. Mỗi tin nhắn TỪ Server được in ra màn hình
+            @Override
+            public void event(ChatClient c, ServerEvent event) {
+                System.out.println(event.line);
+            }
+
+            @Override
+            public void disconnected(ChatClient c, IOException cause) {
+                if (!ready.completeExceptionally(cause != null ? cause : new IOException("Server đã đóng kết nối"))) {
+                    System.out.println("Mất kết nối với Server.");
+                }
+            }
+        });
+        client.connect();
+
+        try {
+            ready.join();
+        } catch (Exception e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            System.err.println("Không thể kết nối tới Server: " + cause.getMessage());
+            return;
+        }
+        System.out.println("Đã kết nối tới MiniChat Server!");
+
+        // 3. Luồng main (luồng chính) sẽ đọc tin nhắn từ bàn phím và gửi đi
+        Scanner sc = new Scanner(System.in);
+        System.out.println("Nhập tin nhắn của bạn (gõ 'bye' để thoát):");
+
+        while (sc.hasNextLine()) {
+            String myMessage = sc.nextLine(); // Đọc tin nhắn từ bàn phím
+            CompletableFuture<Void> sent = client.send(myMessage); // Gửi tin nhắn đó lên Server
+
+            if ("bye".equalsIgnoreCase(myMessage)) {
+                sent.handle((v, e) -> v).join(); // Chờ tin cuối được gửi đi rồi mới đóng
+                break; // Nếu gõ 'bye' thì thoát vòng lặp
+            }
+        }
+
+        // Đóng kết nối
+        sc.close();
+        client.close();
+    }
 }
\ No newline at end of file
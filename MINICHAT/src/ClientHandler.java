@@ -1,182 +1,555 @@
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.io.PrintWriter;
-import java.net.Socket;
-
-public class ClientHandler implements Runnable {
-
-    private Socket clientSocket;
-    private PrintWriter out;
-    private BufferedReader in;
-    private String username;
-    private String currentRoom;
-
-    public ClientHandler(Socket socket) {
-        try {
-            this.clientSocket = socket;
-            this.out = new PrintWriter(clientSocket.getOutputStream(), true);
-            this.in = new BufferedReader(new InputStreamReader(clientSocket.getInputStream(), "UTF-8"));
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-    }
-
-    // Getters & Setters
-    public String getUsername() {
-        return username;
-    }
-
-    public void setUsername(String username) {
-        this.username = username;
-    }
-
-    public String getCurrentRoom() {
-        return currentRoom;
-    }
-
-    public void setCurrentRoom(String room) {
-        this.currentRoom = room;
-    }
-
-    @Override
-    public void run() {
-        try {
-            String inputLine;
-            while ((inputLine = in.readLine()) != null) {
-                processMessage(inputLine);
-            }
-        } catch (Exception e) {
-            System.out.println("❌ " + (username != null ? username : "Client") + " đã ngắt kết nối.");
-        } finally {
-            Server.removeClient(this);
-            closeConnection();
-        }
-    }
-
-    // ════════════════════════════════════════════════════════════════════
-    // XỬ LÝ TIN NHẮN VÀ COMMANDS
-    // ════════════════════════════════════════════════════════════════════
-    private void processMessage(String message) {
-        System.out.println("📩 " + (username != null ? username : "?") + ": " + message);
-
-        // Parse commands
-        if (message.startsWith("/")) {
-            handleCommand(message);
-        }
-        // Set username (first message)
-        else if (message.startsWith("USERNAME:")) {
-            this.username = message.substring(9);
-            System.out.println("👤 User registered: " + username);
-
-            // Send room list and online users
-            sendMessage(Server.getRoomList());
-            sendMessage(Server.getOnlineUsers());
-            Server.broadcastToAll("USER_JOINED:" + username);
-            Server.broadcastToAll(Server.getOnlineUsers());
-        }
-        // Regular chat message -> broadcast to current room
-        else if (currentRoom != null) {
-            String fullMessage = "MSG:" + currentRoom + ":" + username + ":" + message;
-            Server.broadcastToRoom(currentRoom, fullMessage);
-        }
-    }
-
-    private void handleCommand(String command) {
-        String[] parts = command.split(" ", 3);
-        String cmd = parts[0].toLowerCase();
-
-        switch (cmd) {
-            case "/join":
-                if (parts.length >= 2) {
-                    String room = parts[1];
-                    Server.joinRoom(this, room);
-                    sendMessage("JOINED:" + room);
-                    sendMessage(Server.getOnlineUsers());
-                }
-                break;
-
-            case "/leave":
-                if (currentRoom != null) {
-                    String leftRoom = currentRoom;
-                    Server.leaveCurrentRoom(this);
-                    sendMessage("LEFT:" + leftRoom);
-                    currentRoom = null;
-                }
-                break;
-
-            case "/create":
-                if (parts.length >= 2) {
-                    String newRoom = parts[1];
-                    Server.createRoom(newRoom);
-                    sendMessage(Server.getRoomList());
-                }
-                break;
-
-            case "/pm":
-                // /pm username message
-                if (parts.length >= 3) {
-                    String targetUser = parts[1];
-                    String pmMessage = parts[2];
-                    sendPrivateMessage(targetUser, pmMessage);
-                }
-                break;
-
-            case "/rooms":
-                sendMessage(Server.getRoomList());
-                break;
-
-            case "/online":
-                sendMessage(Server.getOnlineUsers());
-                break;
-
-            case "/file":
-                // /file filename:size:base64data
-                if (parts.length >= 2 && currentRoom != null) {
-                    String fileData = parts[1];
-                    if (parts.length >= 3) {
-                        fileData = parts[1] + " " + parts[2];
-                    }
-                    // Broadcast file to room
-                    String fileMsg = "FILE:" + currentRoom + ":" + username + ":" + fileData;
-                    Server.broadcastToRoom(currentRoom, fileMsg);
-                    System.out.println("[FILE] " + username + " shared a file in " + currentRoom);
-                }
-                break;
-
-            default:
-                sendMessage("SYSTEM:Unknown command: " + cmd);
-        }
-    }
-
-    private void sendPrivateMessage(String targetUsername, String message) {
-        synchronized (Server.allClients) {
-            for (ClientHandler client : Server.allClients) {
-                if (client.getUsername() != null && client.getUsername().equals(targetUsername)) {
-                    client.sendMessage("PM:" + this.username + ":" + message);
-                    this.sendMessage("PM_SENT:" + targetUsername + ":" + message);
-                    return;
-                }
-            }
-        }
-        sendMessage("SYSTEM:User not found: " + targetUsername);
-    }
-
-    public void sendMessage(String message) {
-        if (out != null) {
-            out.println(message);
-        }
-    }
-
-    private void closeConnection() {
-        try {
-            if (in != null)
-                in.close();
-            if (out != null)
-                out.close();
-            if (clientSocket != null)
-                clientSocket.close();
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-    }
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class ClientHandler implements Runnable {
+
+    private static final int MAX_HISTORY_PAGE = 100;
+    private static final int MAX_SINCE_LINES = 200;
+    private static final int MAX_CHAT_BYTES = Integer.getInteger("minichat.maxChatBytes", 16 * 1024);
+
+    private Socket clientSocket;
+    private ConnectionWriter out;
+    private LineReader in;
+    private String username;
+    private volatile String currentRoom;
+    private final Set<String> subscriptions = ConcurrentHashMap.newKeySet();
+    private String resumeToken;
+    private volatile boolean detached = false;
+    private volatile boolean superseded = false;
+    // PMs that arrived while detached (no history keeps them); handed to the
+    // resuming connection, which then receives any later ones directly
+    private static final int MAX_HELD_PMS = 100;
+    private final List<String> heldPrivate = new ArrayList<>();
+    private ClientHandler resumedBy;
+    private volatile boolean quitting = false;
+    private volatile FileUpload upload;
+
+    // Room creation rate limit (fixed window)
+    private long roomCreateWindowStart = 0;
+    private int roomCreateCount = 0;
+
+    public ClientHandler(Socket socket) {
+        try {
+            this.clientSocket = socket;
+            this.out = new ConnectionWriter(clientSocket, this);
+            this.in = new LineReader(clientSocket.getChannel());
+            // Per-type frame limits; /file is streamed instead of buffered
+            in.limit("USERNAME:", 256);
+            in.limit("RESUME:", 8 * 1024);
+            in.limit("/", 8 * 1024);
+            in.defaultLimit(MAX_CHAT_BYTES);
+            in.stream("/file ", () -> upload = new FileUpload(this, currentRoom));
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Getters & Setters
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public String getCurrentRoom() {
+        return currentRoom;
+    }
+
+    public void setCurrentRoom(String room) {
+        this.currentRoom = room;
+    }
+
+    public Set<String> getSubscriptions() {
+        return subscriptions;
+    }
+
+    public boolean isSubscribed(String room) {
+        return subscriptions.contains(room);
+    }
+
+    public void addSubscription(String room) {
+        subscriptions.add(room);
+    }
+
+    public boolean removeSubscription(String room) {
+        return subscriptions.remove(room);
+    }
+
+    public void subscribeRing(RoomRing ring) {
+        if (out != null) {
+            out.subscribe(ring);
+        }
+    }
+
+    public void unsubscribeRing(RoomRing ring) {
+        if (out != null) {
+            out.unsubscribe(ring);
+        }
+    }
+
+    public void wakeWriter() {
+        if (out != null) {
+            out.wake();
+        }
+    }
+
+    public String getResumeToken() {
+        return resumeToken;
+    }
+
+    public void setResumeToken(String resumeToken) {
+        this.resumeToken = resumeToken;
+    }
+
+    public boolean isDetached() {
+        return detached;
+    }
+
+    public void setDetached(boolean detached) {
+        this.detached = detached;
+    }
+
+    public boolean isSuperseded() {
+        return superseded;
+    }
+
+    public boolean isQuitting() {
+        return quitting;
+    }
+
+    public synchronized boolean allowRoomCreate(int max, long windowMs) {
+        long now = System.currentTimeMillis();
+        if (now - roomCreateWindowStart >= windowMs) {
+            roomCreateWindowStart = now;
+            roomCreateCount = 0;
+        }
+        if (roomCreateCount >= max) {
+            return false;
+        }
+        roomCreateCount++;
+        return true;
+    }
+
+    // Approximate bytes held on top of the fixed per-connection cost
+    public long memoryBytes() {
+        FileUpload current = upload;
+        long bytes = in != null ? in.bufferBytes() : 0;
+        if (out != null) {
+            bytes += out.queuedBytes() + out.bufferBytes();
+        }
+        return bytes + (current != null ? current.retainedBytes() : 0);
+    }
+
+    public long queuedBytes() {
+        return out != null ? out.queuedBytes() : 0;
+    }
+
+    // Dropped to stay under the memory budget; the session can still resume
+    public void shed() {
+        closeConnection();
+    }
+
+    // PM line for this user; false if it can be neither sent nor kept
+    public boolean deliverPrivate(String line) {
+        ClientHandler forward;
+        synchronized (heldPrivate) {
+            forward = resumedBy;
+            if (forward == null) {
+                if (!detached) {
+                    sendMessage(line);
+                    return true;
+                }
+                if (heldPrivate.size() >= MAX_HELD_PMS) {
+                    return false;
+                }
+                heldPrivate.add(line);
+                return true;
+            }
+        }
+        return forward.deliverPrivate(line);
+    }
+
+    // Resume: take the held PMs; later ones go straight to the new connection
+    public List<String> handOverPrivate(ClientHandler successor) {
+        synchronized (heldPrivate) {
+            resumedBy = successor;
+            List<String> held = new ArrayList<>(heldPrivate);
+            heldPrivate.clear();
+            return held;
+        }
+    }
+
+    // Session was taken over by a reconnecting socket
+    public void supersede() {
+        superseded = true;
+        detached = true;
+        closeConnection();
+    }
+
+    @Override
+    public void run() {
+        if (out != null) {
+            Thread writerThread = new Thread(out, "writer-" + clientSocket.getRemoteSocketAddress());
+            writerThread.setDaemon(true);
+            writerThread.start();
+        }
+        try {
+            while (true) {
+                String inputLine;
+                try {
+                    inputLine = in.readLine();
+                } catch (FrameTooLargeException e) {
+                    sendMessage("SYSTEM:" + e.getMessage());
+                    continue;
+                }
+                if (inputLine == null) {
+                    break;
+                }
+                processMessage(inputLine);
+            }
+        } catch (Exception e) {
+            System.out.println("❌ " + (username != null ? username : "Client") + " đã ngắt kết nối.");
+        } finally {
+            FileUpload current = upload;
+            if (current != null) {
+                current.abort();
+            }
+            Server.disconnectClient(this);
+            closeConnection();
+        }
+    }
+
+    // ════════════════════════════════════════════════════════════════════
+    // XỬ LÝ TIN NHẮN VÀ COMMANDS
+    // ════════════════════════════════════════════════════════════════════
+    private void processMessage(String message) {
+        if (!message.startsWith("/upload_data ")) {
+            System.out.println("📩 " + (username != null ? username : "?") + ": " + message);
+        }
+
+        message = InterceptorChain.apply(MessageInterceptor.Stage.INBOUND, this, null, message);
+        if (message == null) {
+            return;
+        }
+
+        // Parse commands
+        if (message.startsWith("/")) {
+            handleCommand(message);
+        }
+        // Client capabilities: CAPS:BATCH,...
+        else if (message.startsWith("CAPS:")) {
+            for (String cap : message.substring(5).split(",")) {
+                if (cap.trim().equals("BATCH") && out != null) {
+                    out.enableBatching();
+                }
+            }
+        }
+        // Resume a dropped session: RESUME:token:room=seq,room=seq
+        else if (message.startsWith("RESUME:") && username == null) {
+            String[] parts = message.substring(7).split(":", 2);
+            Map<String, Long> lastSeqs = new HashMap<>();
+            if (parts.length >= 2 && !parts[1].isEmpty()) {
+                for (String entry : parts[1].split(",")) {
+                    String[] kv = entry.split("=", 2);
+                    try {
+                        lastSeqs.put(kv[0], kv.length > 1 ? Long.parseLong(kv[1]) : 0L);
+                    } catch (NumberFormatException ignored) {
+                    }
+                }
+            }
+            if (!Server.resumeSession(this, parts[0], lastSeqs)) {
+                sendMessage("RESUME_FAILED");
+            }
+        }
+        // Set username (first message)
+        else if (message.startsWith("USERNAME:")) {
+            this.username = message.substring(9);
+            System.out.println("👤 User registered: " + username);
+
+            // Send resume token, room list and online users
+            sendMessage("SESSION:" + Server.registerSession(this));
+            sendMessage(Server.getRoomList());
+            sendMessage(Server.getOnlineUsers());
+            Server.broadcastToAll("USER_JOINED:" + username);
+            Server.broadcastToAll(Server.getOnlineUsers());
+        }
+        // Regular chat message -> broadcast to current room
+        else if (currentRoom != null) {
+            Server.postToRoom(currentRoom, "MSG", this, message);
+        }
+    }
+
+    private void handleCommand(String command) {
+        String[] parts = command.split(" ", 3);
+        String cmd = parts[0].toLowerCase();
+
+        switch (cmd) {
+            case "/join":
+                // /join room [other,other] - the other rooms are followed too, so a
+                // reconnecting client gets all its rooms back in one request
+                if (parts.length >= 3) {
+                    for (String other : parts[2].trim().split(",")) {
+                        Room room = Server.rooms.get(other);
+                        if (room != null && Server.subscribe(this, room)) {
+                            sendMessage("SUBSCRIBED:" + other);
+                        }
+                    }
+                }
+                if (parts.length >= 2) {
+                    String room = parts[1];
+                    if (Server.joinRoom(this, room)) {
+                        sendMessage("JOINED:" + room);
+                        sendMessage(Server.getOnlineUsers());
+                    } else {
+                        sendMessage("SYSTEM:Không thể vào phòng: " + room);
+                    }
+                }
+                break;
+
+            case "/subscribe":
+                // Follow a room without making it the active one
+                if (parts.length >= 2) {
+                    Room room = Server.rooms.get(parts[1]);
+                    if (room != null && Server.subscribe(this, room)) {
+                        sendMessage("SUBSCRIBED:" + parts[1]);
+                    } else {
+                        sendMessage("SYSTEM:Không thể theo dõi phòng: " + parts[1]);
+                    }
+                }
+                break;
+
+            case "/leave":
+                // /leave [room] - defaults to the active room
+                String leftRoom = parts.length >= 2 ? parts[1] : currentRoom;
+                if (leftRoom != null && isSubscribed(leftRoom)) {
+                    Server.leaveRoom(this, leftRoom);
+                    sendMessage("LEFT:" + leftRoom);
+                }
+                break;
+
+            case "/msg":
+                // /msg room text - post to any subscribed room
+                if (parts.length >= 3 && isSubscribed(parts[1])) {
+                    Server.postToRoom(parts[1], "MSG", this, parts[2]);
+                }
+                break;
+
+            case "/create":
+                if (parts.length >= 2) {
+                    String newRoom = parts[1];
+                    String error = Server.createRoom(this, newRoom);
+                    if (error != null) {
+                        sendMessage("SYSTEM:" + error);
+                    }
+                    sendMessage(Server.getRoomList());
+                }
+                break;
+
+            case "/pm":
+                // /pm username message
+                if (parts.length >= 3) {
+                    String targetUser = parts[1];
+                    String pmMessage = parts[2];
+                    sendPrivateMessage(targetUser, pmMessage);
+                }
+                break;
+
+            case "/quit":
+                // Intentional exit: no resume grace period
+                quitting = true;
+                closeConnection();
+                break;
+
+            case "/rooms":
+                // /rooms | /rooms since <version> | /rooms page <n> [prefix]
+                if (parts.length >= 3 && parts[1].equalsIgnoreCase("since")) {
+                    try {
+                        sendMessage(Server.getRoomDelta(Long.parseLong(parts[2].trim())));
+                    } catch (NumberFormatException e) {
+                        sendMessage(Server.getRoomList());
+                    }
+                } else if (parts.length >= 3 && parts[1].equalsIgnoreCase("page")) {
+                    String[] args = parts[2].trim().split(" ", 2);
+                    try {
+                        sendMessage(Server.getRoomPage(Integer.parseInt(args[0]), args.length > 1 ? args[1] : ""));
+                    } catch (NumberFormatException e) {
+                        sendMessage(Server.getRoomList());
+                    }
+                } else {
+                    sendMessage(Server.getRoomList());
+                }
+                break;
+
+            case "/history":
+                // /history room beforeSeq [limit] - older messages, beforeSeq 0 = newest
+                if (parts.length >= 3 && isSubscribed(parts[1])) {
+                    String[] args = parts[2].trim().split(" ");
+                    try {
+                        long before = Long.parseLong(args[0]);
+                        int limit = args.length > 1 ? Integer.parseInt(args[1]) : MAX_HISTORY_PAGE;
+                        Server.sendHistory(this, parts[1], before <= 0 ? Long.MAX_VALUE : before,
+                                Math.max(1, Math.min(limit, MAX_HISTORY_PAGE)));
+                        break;
+                    } catch (NumberFormatException ignored) {
+                    }
+                }
+                if (parts.length >= 2) {
+                    sendMessage("HISTORY_END:" + parts[1] + ":0");
+                }
+                break;
+
+            // Chunked upload: chat lines can go out between the chunks
+            // /upload name:size, /upload_data base64..., /upload_end | /upload_cancel
+            case "/upload":
+                cancelUpload();
+                if (parts.length >= 2) {
+                    upload = new FileUpload(this, currentRoom);
+                    feedUpload(command.substring(8) + ":");
+                }
+                break;
+
+            case "/upload_data":
+                if (parts.length >= 2 && upload != null) {
+                    feedUpload(parts[1]);
+                }
+                break;
+
+            case "/upload_end": {
+                FileUpload current = upload;
+                upload = null;
+                if (current != null) {
+                    current.end();
+                }
+                break;
+            }
+
+            case "/upload_cancel":
+                cancelUpload();
+                break;
+
+            case "/since":
+                // /since room afterSeq [epoch] - catch a client-side cache up
+                if (parts.length >= 3 && isSubscribed(parts[1])) {
+                    String[] args = parts[2].trim().split(" ");
+                    try {
+                        long epoch = args.length > 1 ? Long.parseLong(args[1]) : 0;
+                        Server.sendSince(this, parts[1], Long.parseLong(args[0]), epoch, MAX_SINCE_LINES);
+                        break;
+                    } catch (NumberFormatException ignored) {
+                    }
+                }
+                if (parts.length >= 2) {
+                    sendMessage("SINCE_END:" + parts[1] + ":0:0");
+                }
+                break;
+
+            case "/memtop":
+                // Shows every user's name and usage: admins only
+                if (!MemoryBudget.canViewTop(username)) {
+                    sendMessage("SYSTEM:Không có quyền dùng /memtop");
+                    break;
+                }
+                for (String line : MemoryBudget.top(5)) {
+                    sendMessage("SYSTEM:" + line);
+                }
+                break;
+
+            case "/online":
+                sendMessage(Server.getOnlineUsers());
+                break;
+
+            default:
+                sendMessage("SYSTEM:Unknown command: " + cmd);
+        }
+    }
+
+    private void feedUpload(String text) {
+        FileUpload current = upload;
+        try {
+            current.data(ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (IOException e) {
+            current.cancel();
+        }
+        if (current.error() != null) {
+            // Tell the sender now instead of at /upload_end
+            upload = null;
+            sendMessage("UPLOAD_FAILED:" + current.error());
+        }
+    }
+
+    // Upload reached its end (or the socket dropped): later /upload_data
+    // lines must not reach it
+    public void uploadEnded(FileUpload ended) {
+        if (upload == ended) {
+            upload = null;
+        }
+    }
+
+    private void cancelUpload() {
+        FileUpload current = upload;
+        upload = null;
+        if (current != null) {
+            current.cancel();
+        }
+    }
+
+    private void sendPrivateMessage(String targetUsername, String message) {
+        ChatEvents.PrivateMessage event = new ChatEvents.PrivateMessage();
+        event.begin();
+        ClientHandler target = null;
+        int scanned = 0;
+        synchronized (Server.allClients) {
+            for (ClientHandler client : Server.allClients) {
+                scanned++;
+                if (client.getUsername() != null && client.getUsername().equals(targetUsername)) {
+                    target = client;
+                    break;
+                }
+            }
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.sender = username;
+            event.target = targetUsername;
+            event.found = target != null;
+            event.scanned = scanned;
+            event.commit();
+        }
+        if (target == null) {
+            sendMessage("SYSTEM:User not found: " + targetUsername);
+            return;
+        }
+        if (!target.deliverPrivate("PM:" + this.username + ":" + message)) {
+            sendMessage("SYSTEM:" + targetUsername + " đang offline, tin nhắn chưa được gửi");
+            return;
+        }
+        this.sendMessage("PM_SENT:" + targetUsername + ":" + message);
+    }
+
+    public void sendMessage(String message) {
+        if (out != null && !detached) {
+            out.send(message);
+        }
+    }
+
+    private void closeConnection() {
+        try {
+            if (out != null)
+                out.close();
+            if (clientSocket != null)
+                clientSocket.close();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
 }
\ No newline at end of file
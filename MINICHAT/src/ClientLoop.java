@@ -0,0 +1,83 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Selector thread shared by many client connections. A small fixed pool
+// (-Dminichat.ioThreads, default 2) serves every TcpTransport in the JVM, so a
+// thousand bot connections cost a thousand channels, not a thousand threads.
+public class ClientLoop implements Runnable {
+
+    // Registered channels' key attachment
+    interface Ready {
+        void ready(SelectionKey key);
+    }
+
+    private static final int THREADS = Math.max(1, Integer.getInteger("minichat.ioThreads", 2));
+    private static ClientLoop[] pool;
+    private static final AtomicInteger nextLoop = new AtomicInteger();
+
+    private final Selector selector;
+    private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    // One read buffer per loop; handlers consume it before returning
+    final ByteBuffer readBuffer = ByteBuffer.allocateDirect(64 * 1024);
+
+    private ClientLoop(String name) throws IOException {
+        selector = Selector.open();
+        Thread thread = new Thread(this, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // Loops are handed out round-robin
+    public static synchronized ClientLoop next() {
+        if (pool == null) {
+            pool = new ClientLoop[THREADS];
+            for (int i = 0; i < THREADS; i++) {
+                try {
+                    pool[i] = new ClientLoop("minichat-io-" + i);
+                } catch (IOException e) {
+                    throw new IllegalStateException("Không mở được selector", e);
+                }
+            }
+        }
+        return pool[Math.floorMod(nextLoop.getAndIncrement(), THREADS)];
+    }
+
+    Selector selector() {
+        return selector;
+    }
+
+    // Run on the loop thread
+    public void execute(Runnable task) {
+        tasks.add(task);
+        selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            try {
+                selector.select();
+                Runnable task;
+                while ((task = tasks.poll()) != null) {
+                    task.run();
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (key.isValid()) {
+                        ((Ready) key.attachment()).ready(key);
+                    }
+                }
+            } catch (Exception e) {
+                // One bad connection must not stop the others
+                System.out.println("⚠ Client I/O loop: " + e);
+            }
+        }
+    }
+}
@@ -0,0 +1,354 @@
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class ConnectionWriter implements Runnable {
+
+    // Flush khi batch đủ lớn hoặc khi tin đầu tiên trong batch đã chờ quá lâu
+    private static final int MAX_BATCH_CHARS = 32 * 1024;
+    private static final long MAX_FLUSH_DELAY_NANOS = TimeUnit.MILLISECONDS
+            .toNanos(Long.getLong("minichat.flushDelayMs", 2));
+
+    // ════════════════════════════════════════════════════════════════════
+    // PRIORITY LANES: control/presence > chat/PM > bulk file data
+    // ════════════════════════════════════════════════════════════════════
+    public static final int LANE_CONTROL = 0;
+    public static final int LANE_CHAT = 1;
+    public static final int LANE_BULK = 2;
+
+    private final Socket socket;
+    private final ClientHandler owner;
+    private final ChannelWriter out;
+    private final Object lock = new Object();
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private final ArrayDeque<String>[] lanes = new ArrayDeque[] { new ArrayDeque<String>(),
+            new ArrayDeque<String>(), new ArrayDeque<String>() };
+    private volatile boolean closed = false;
+    private volatile long queuedBytes = 0;
+
+    // ════════════════════════════════════════════════════════════════════
+    // RING DELIVERY (minichat.delivery=ring): room lines are read from each
+    // room's RoomRing with a per-connection cursor instead of being queued
+    // ════════════════════════════════════════════════════════════════════
+    private static final boolean DISCONNECT_LAPPED = "disconnect".equals(System.getProperty("minichat.ringLap"));
+
+    private static class RingCursor {
+        final RoomRing ring;
+        long next;
+
+        RingCursor(RoomRing ring, long next) {
+            this.ring = ring;
+            this.next = next;
+        }
+    }
+
+    // Copy-on-write so the writer thread iterates without locking
+    private volatile RingCursor[] cursors = new RingCursor[0];
+    private int nextCursor = 0;
+    private volatile boolean waiting = false;
+
+    // ════════════════════════════════════════════════════════════════════
+    // BATCH FRAMES: for clients that sent CAPS:BATCH, lines that are already
+    // queued when the writer wakes go out as "BATCH:n" + n lines
+    // ════════════════════════════════════════════════════════════════════
+    private static final int MAX_BATCH_LINES = 64;
+
+    private volatile boolean batching = false;
+    private final List<String> batch = new ArrayList<>(MAX_BATCH_LINES);
+
+    public ConnectionWriter(Socket socket, ClientHandler owner) {
+        this.socket = socket;
+        this.owner = owner;
+        this.out = new ChannelWriter(socket.getChannel());
+    }
+
+    public static int laneFor(String line) {
+        if (line.startsWith("FILE")) {
+            return LANE_BULK;
+        }
+        if (line.startsWith("MSG:") || line.startsWith("PM:") || line.startsWith("PM_SENT:")
+                || line.startsWith("HISTORY") || line.startsWith("SINCE")) {
+            return LANE_CHAT;
+        }
+        return LANE_CONTROL;
+    }
+
+    public void send(String line) {
+        if (closed) {
+            return;
+        }
+        synchronized (lock) {
+            enqueue(laneFor(line), line);
+            lock.notify();
+        }
+    }
+
+    // Caller holds lock
+    private void enqueue(int lane, String line) {
+        lanes[lane].addLast(line);
+        long bytes = MemoryBudget.lineBytes(line);
+        queuedBytes += bytes;
+        MemoryBudget.queued(bytes);
+    }
+
+    // Caller holds lock
+    private String poll(int lane) {
+        String line = lanes[lane].pollFirst();
+        if (line != null) {
+            long bytes = MemoryBudget.lineBytes(line);
+            queuedBytes -= bytes;
+            MemoryBudget.queued(-bytes);
+        }
+        return line;
+    }
+
+    // Approximate heap held by queued lines and the send buffer
+    public long queuedBytes() {
+        return queuedBytes;
+    }
+
+    public long bufferBytes() {
+        return out.bufferBytes();
+    }
+
+    // Caller holds the room's members lock, so no line is missed or repeated
+    public void subscribe(RoomRing ring) {
+        synchronized (lock) {
+            RingCursor[] updated = Arrays.copyOf(cursors, cursors.length + 1);
+            updated[cursors.length] = new RingCursor(ring, ring.getPublished() + 1);
+            cursors = updated;
+        }
+    }
+
+    public void unsubscribe(RoomRing ring) {
+        synchronized (lock) {
+            List<RingCursor> kept = new ArrayList<>();
+            for (RingCursor cursor : cursors) {
+                if (cursor.ring != ring) {
+                    kept.add(cursor);
+                }
+            }
+            cursors = kept.toArray(new RingCursor[0]);
+        }
+    }
+
+    // Called after a ring publish; only takes the lock if the writer sleeps
+    public void wake() {
+        if (waiting) {
+            synchronized (lock) {
+                lock.notify();
+            }
+        }
+    }
+
+    public void enableBatching() {
+        batching = true;
+    }
+
+    public void close() {
+        closed = true;
+        synchronized (lock) {
+            lock.notify();
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (awaitWork(Long.MAX_VALUE)) {
+                long deadline = System.nanoTime() + MAX_FLUSH_DELAY_NANOS;
+                int pending = 0;
+
+                // Gom các frame tới trong khoảng trễ cho phép -> 1 lần flush
+                while (true) {
+                    int written = writeNext();
+                    if (written < 0) {
+                        long wait = deadline - System.nanoTime();
+                        if (wait <= 0 || !awaitWork(wait)) {
+                            break;
+                        }
+                        continue;
+                    }
+                    pending += written;
+                    if (pending >= MAX_BATCH_CHARS || System.nanoTime() >= deadline) {
+                        break;
+                    }
+                }
+                out.flush();
+            }
+            out.flush();
+        } catch (IOException e) {
+            // Socket chết: đóng để luồng đọc của ClientHandler kết thúc
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            closed = true;
+            out.close();
+            synchronized (lock) {
+                for (ArrayDeque<String> lane : lanes) {
+                    lane.clear();
+                }
+                MemoryBudget.queued(-queuedBytes);
+                queuedBytes = 0;
+            }
+        }
+    }
+
+    // Wait until some frame can be written; false once closed or timed out
+    private boolean awaitWork(long nanos) throws InterruptedException {
+        long end = nanos == Long.MAX_VALUE ? Long.MAX_VALUE : System.nanoTime() + nanos;
+        synchronized (lock) {
+            // Set before checking the rings: a publisher that misses the flag
+            // has already published, so ringsHaveData() sees its line
+            waiting = true;
+            try {
+                while (!closed && lanes[LANE_CONTROL].isEmpty() && lanes[LANE_CHAT].isEmpty()
+                        && lanes[LANE_BULK].isEmpty() && !ringsHaveData()) {
+                    if (end == Long.MAX_VALUE) {
+                        lock.wait();
+                    } else {
+                        long left = end - System.nanoTime();
+                        if (left <= 0) {
+                            return false;
+                        }
+                        TimeUnit.NANOSECONDS.timedWait(lock, left);
+                    }
+                }
+            } finally {
+                waiting = false;
+            }
+            return !closed;
+        }
+    }
+
+    private boolean ringsHaveData() {
+        for (RingCursor cursor : cursors) {
+            if (cursor.next <= cursor.ring.getPublished()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Next room line from the rings, round-robin across rooms; null if none.
+    // File chunks read from a ring go to the bulk lane instead.
+    private String nextRingLine() throws IOException {
+        while (true) {
+            RingCursor cursor = nextReadyCursor();
+            if (cursor == null) {
+                return null;
+            }
+            String line = cursor.ring.read(cursor.next);
+            if (line == null) {
+                return lapped(cursor);
+            }
+            cursor.next++;
+            if (laneFor(line) != LANE_BULK) {
+                return line;
+            }
+            synchronized (lock) {
+                enqueue(LANE_BULK, line);
+            }
+        }
+    }
+
+    private RingCursor nextReadyCursor() {
+        RingCursor[] snapshot = cursors;
+        int n = snapshot.length;
+        for (int i = 0; i < n; i++) {
+            RingCursor cursor = snapshot[(nextCursor + i) % n];
+            if (cursor.next <= cursor.ring.getPublished()) {
+                nextCursor = (nextCursor + i + 1) % n;
+                return cursor;
+            }
+        }
+        return null;
+    }
+
+    // Reader fell a full lap behind: skip ahead with a GAP notice, or drop it
+    private String lapped(RingCursor cursor) throws IOException {
+        long resume = cursor.ring.getPublished() - RoomRing.CAPACITY + 1;
+        if (DISCONNECT_LAPPED) {
+            out.write("SYSTEM:Kết nối quá chậm, bị ngắt khỏi " + cursor.ring.getRoomName() + "\n");
+            out.flush();
+            throw new IOException("lapped in " + cursor.ring.getRoomName());
+        }
+        String notice = "GAP:" + cursor.ring.getRoomName() + ":" + cursor.next + ":" + (resume - 1);
+        cursor.next = resume;
+        return notice;
+    }
+
+    // Next control, chat or ring line in priority order, after the OUTBOUND
+    // interceptors; null if none
+    private String pollLine() throws IOException {
+        while (true) {
+            String line;
+            synchronized (lock) {
+                line = poll(LANE_CONTROL);
+                if (line == null) {
+                    line = poll(LANE_CHAT);
+                }
+            }
+            if (line == null && cursors.length > 0) {
+                line = nextRingLine();
+            }
+            if (line == null) {
+                return null;
+            }
+            line = InterceptorChain.apply(MessageInterceptor.Stage.OUTBOUND, owner, null, line);
+            if (line != null) {
+                return line;
+            }
+        }
+    }
+
+    private int writeLine(String line) throws IOException {
+        out.write(line);
+        out.write('\n');
+        return line.length() + 1;
+    }
+
+    // Lines already queued behind first go out as one BATCH:n frame
+    private int writeBatch(String first) throws IOException {
+        batch.add(first);
+        int chars = first.length() + 1;
+        while (batch.size() < MAX_BATCH_LINES && chars < MAX_BATCH_CHARS) {
+            String next = pollLine();
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+            chars += next.length() + 1;
+        }
+        if (batch.size() > 1) {
+            chars += writeLine("BATCH:" + batch.size());
+        }
+        for (String line : batch) {
+            writeLine(line);
+        }
+        batch.clear();
+        return chars;
+    }
+
+    // Write one frame from the highest non-empty lane; -1 if nothing to write
+    private int writeNext() throws IOException {
+        String line = pollLine();
+        if (line != null) {
+            return batching ? writeBatch(line) : writeLine(line);
+        }
+        // File lines arrive already chunked (FILE_BEGIN / FILE_DATA / FILE_END)
+        String nextBulk;
+        synchronized (lock) {
+            nextBulk = poll(LANE_BULK);
+        }
+        return nextBulk != null ? writeLine(nextBulk) : -1;
+    }
+}
@@ -0,0 +1,255 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Banned words/links filter for room messages (BROADCAST stage).
+// The pattern file (one pattern per line, '#' for comments, case-insensitive)
+// is compiled into an Aho-Corasick automaton so each message is scanned once
+// whatever the number of patterns. The file is checked for changes every few
+// seconds; a new automaton is built on the scheduler thread and swapped in,
+// chat threads keep using the old one until then.
+//
+// -Dminichat.filter.file=banned.txt  -Dminichat.filter.mode=mask|reject
+public class ContentFilter implements MessageInterceptor {
+
+    private static final long RELOAD_CHECK_SECONDS = 5;
+
+    private final Path file;
+    private final boolean reject;
+    private volatile Automaton automaton = Automaton.EMPTY;
+    private long loadedModified = -1;
+
+    public ContentFilter(Path file, boolean reject) {
+        this.file = file;
+        this.reject = reject;
+    }
+
+    // Filter configured by system properties, or null if no file is set
+    public static ContentFilter fromProperties() {
+        String path = System.getProperty("minichat.filter.file");
+        if (path == null || path.isEmpty()) {
+            return null;
+        }
+        ContentFilter filter = new ContentFilter(Paths.get(path),
+                "reject".equals(System.getProperty("minichat.filter.mode")));
+        filter.reloadIfChanged();
+        Server.scheduler.scheduleWithFixedDelay(filter::reloadIfChanged, RELOAD_CHECK_SECONDS,
+                RELOAD_CHECK_SECONDS, TimeUnit.SECONDS);
+        return filter;
+    }
+
+    @Override
+    public boolean handles(Stage stage) {
+        return stage == Stage.BROADCAST;
+    }
+
+    @Override
+    public String intercept(Stage stage, ClientHandler client, String room, String message) {
+        Automaton current = automaton;
+        if (reject) {
+            if (current.findFirst(message) < 0) {
+                return message;
+            }
+            if (client != null) {
+                client.sendMessage("SYSTEM:Tin nhắn chứa nội dung bị chặn");
+            }
+            return null;
+        }
+        return current.mask(message);
+    }
+
+    // Scheduler thread only
+    private void reloadIfChanged() {
+        try {
+            long modified = Files.getLastModifiedTime(file).toMillis();
+            if (modified == loadedModified) {
+                return;
+            }
+            List<String> patterns = new ArrayList<>();
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                line = line.trim();
+                if (!line.isEmpty() && !line.startsWith("#")) {
+                    patterns.add(line);
+                }
+            }
+            automaton = Automaton.build(patterns);
+            loadedModified = modified;
+            System.out.println("🛡 Content filter: " + patterns.size() + " mẫu (" + automaton.states + " states)");
+        } catch (IOException e) {
+            System.out.println("⚠ Không đọc được " + file + ": " + e.getMessage());
+        }
+    }
+
+    // ════════════════════════════════════════════════════════════════════
+    // AHO-CORASICK: immutable once built. Each state's children sit in one
+    // sorted slice of childChars/childStates; matchLength is the longest
+    // pattern ending in that state (own or via failure links).
+    // ════════════════════════════════════════════════════════════════════
+    static final class Automaton {
+
+        static final Automaton EMPTY = build(new ArrayList<>());
+
+        final int states;
+        private final int[] childStart;
+        private final char[] childChars;
+        private final int[] childStates;
+        private final int[] fail;
+        private final int[] matchLength;
+
+        private Automaton(int states, int[] childStart, char[] childChars, int[] childStates, int[] fail,
+                int[] matchLength) {
+            this.states = states;
+            this.childStart = childStart;
+            this.childChars = childChars;
+            this.childStates = childStates;
+            this.fail = fail;
+            this.matchLength = matchLength;
+        }
+
+        static Automaton build(List<String> patterns) {
+            // Trie with growable per-state child lists
+            List<StringBuilder> keys = new ArrayList<>();
+            List<List<Integer>> targets = new ArrayList<>();
+            List<Integer> lengths = new ArrayList<>();
+            keys.add(new StringBuilder());
+            targets.add(new ArrayList<>());
+            lengths.add(0);
+            for (String pattern : patterns) {
+                int state = 0;
+                for (int i = 0; i < pattern.length(); i++) {
+                    char c = Character.toLowerCase(pattern.charAt(i));
+                    int idx = keys.get(state).indexOf(String.valueOf(c));
+                    if (idx < 0) {
+                        keys.get(state).append(c);
+                        targets.get(state).add(keys.size());
+                        keys.add(new StringBuilder());
+                        targets.add(new ArrayList<>());
+                        lengths.add(0);
+                        state = keys.size() - 1;
+                    } else {
+                        state = targets.get(state).get(idx);
+                    }
+                }
+                if (state != 0) {
+                    lengths.set(state, Math.max(lengths.get(state), pattern.length()));
+                }
+            }
+
+            // Flatten into sorted slices
+            int n = keys.size();
+            int[] childStart = new int[n + 1];
+            for (int s = 0; s < n; s++) {
+                childStart[s + 1] = childStart[s] + keys.get(s).length();
+            }
+            char[] childChars = new char[childStart[n]];
+            int[] childStates = new int[childStart[n]];
+            for (int s = 0; s < n; s++) {
+                char[] chars = keys.get(s).toString().toCharArray();
+                Integer[] order = new Integer[chars.length];
+                for (int i = 0; i < order.length; i++) {
+                    order[i] = i;
+                }
+                Arrays.sort(order, (a, b) -> Character.compare(chars[a], chars[b]));
+                for (int i = 0; i < order.length; i++) {
+                    childChars[childStart[s] + i] = chars[order[i]];
+                    childStates[childStart[s] + i] = targets.get(s).get(order[i]);
+                }
+            }
+
+            // Failure links breadth-first
+            int[] fail = new int[n];
+            int[] matchLength = new int[n];
+            for (int s = 0; s < n; s++) {
+                matchLength[s] = lengths.get(s);
+            }
+            int[] queue = new int[n];
+            int head = 0;
+            int tail = 0;
+            for (int i = childStart[0]; i < childStart[1]; i++) {
+                queue[tail++] = childStates[i];
+            }
+            Automaton partial = new Automaton(n, childStart, childChars, childStates, fail, matchLength);
+            while (head < tail) {
+                int s = queue[head++];
+                for (int i = childStart[s]; i < childStart[s + 1]; i++) {
+                    int child = childStates[i];
+                    int f = fail[s];
+                    int next;
+                    while ((next = partial.child(f, childChars[i])) < 0 && f != 0) {
+                        f = fail[f];
+                    }
+                    fail[child] = next >= 0 ? next : 0;
+                    matchLength[child] = Math.max(matchLength[child], matchLength[fail[child]]);
+                    queue[tail++] = child;
+                }
+            }
+            return partial;
+        }
+
+        private int child(int state, char c) {
+            int lo = childStart[state];
+            int hi = childStart[state + 1] - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                char k = childChars[mid];
+                if (k < c) {
+                    lo = mid + 1;
+                } else if (k > c) {
+                    hi = mid - 1;
+                } else {
+                    return childStates[mid];
+                }
+            }
+            return -1;
+        }
+
+        private int step(int state, char c) {
+            c = Character.toLowerCase(c);
+            while (true) {
+                int next = child(state, c);
+                if (next >= 0) {
+                    return next;
+                }
+                if (state == 0) {
+                    return 0;
+                }
+                state = fail[state];
+            }
+        }
+
+        // End index (exclusive) of the first match, or -1
+        int findFirst(String text) {
+            int state = 0;
+            for (int i = 0; i < text.length(); i++) {
+                state = step(state, text.charAt(i));
+                if (matchLength[state] > 0) {
+                    return i + 1;
+                }
+            }
+            return -1;
+        }
+
+        // Matches replaced by '*'; the same String if nothing matched
+        String mask(String text) {
+            char[] masked = null;
+            int state = 0;
+            for (int i = 0; i < text.length(); i++) {
+                state = step(state, text.charAt(i));
+                int len = matchLength[state];
+                if (len > 0) {
+                    if (masked == null) {
+                        masked = text.toCharArray();
+                    }
+                    Arrays.fill(masked, i + 1 - len, i + 1, '*');
+                }
+            }
+            return masked == null ? text : new String(masked);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public class FanOut {
+
+    // Phòng nhỏ gửi tuần tự trên luồng gọi; phòng lớn chia partition cho pool
+    private static final int PARALLEL_THRESHOLD = Integer.getInteger("minichat.parallelFanout", 1024);
+    private static final int PARTITION_SIZE = 256;
+
+    private static final ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors(),
+            p -> {
+                var thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+                thread.setName("minichat-fanout-" + thread.getPoolIndex());
+                thread.setDaemon(true);
+                return thread;
+            }, null, false);
+
+    // Caller must hold the members lock: that keeps per-room order, since
+    // the next message cannot start until every partition has been queued
+    public static void deliver(Set<ClientHandler> members, String line) {
+        if (members.size() < PARALLEL_THRESHOLD) {
+            for (ClientHandler client : members) {
+                client.sendMessage(line);
+            }
+            return;
+        }
+        ClientHandler[] targets = members.toArray(new ClientHandler[0]);
+        pool.invoke(new Task(targets, 0, targets.length, line));
+    }
+
+    private static class Task extends RecursiveAction {
+        private final ClientHandler[] targets;
+        private final int from;
+        private final int to;
+        private final String line;
+
+        Task(ClientHandler[] targets, int from, int to, String line) {
+            this.targets = targets;
+            this.from = from;
+            this.to = to;
+            this.line = line;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= PARTITION_SIZE) {
+                for (int i = from; i < to; i++) {
+                    targets[i].sendMessage(line);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new Task(targets, from, mid, line), new Task(targets, mid, to, line));
+        }
+    }
+}
@@ -0,0 +1,119 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+// Uploads one file from a background thread: read from disk a chunk at a
+// time, base64'd and sent as /upload_data lines. Each chunk is a whole line,
+// so chat typed meanwhile goes out between chunks. Sending is paced to
+// -Dminichat.uploadKBps (0 = no cap), and waits whenever the connection's
+// send queue is past its high-water mark.
+public class FileSender implements Runnable {
+
+    public interface Listener {
+        void progress(long sent, long total);
+
+        // error is null on success
+        void finished(String error);
+    }
+
+    // Multiple of 3, so every chunk encodes without padding (8000 chars)
+    private static final int CHUNK_BYTES = 6000;
+    private static final long PROGRESS_INTERVAL_NANOS = 100_000_000;
+    private static final long RATE_BYTES_PER_SEC = Long.getLong("minichat.uploadKBps", 1024) * 1024;
+
+    private final Path file;
+    private final ChatClient client;
+    private final Listener listener;
+    private volatile String stopReason;
+
+    public FileSender(Path file, ChatClient client, Listener listener) {
+        this.file = file;
+        this.client = client;
+        this.listener = listener;
+    }
+
+    public void cancel() {
+        stop("Đã hủy gửi file");
+    }
+
+    // Server refused the upload (UPLOAD_FAILED)
+    public void stop(String reason) {
+        if (stopReason == null) {
+            stopReason = reason;
+        }
+    }
+
+    @Override
+    public void run() {
+        String error = null;
+        try (InputStream in = Files.newInputStream(file)) {
+            long total = Files.size(file);
+            long sent = 0;
+            long start = System.nanoTime();
+            long lastProgress = 0;
+            byte[] buffer = new byte[CHUNK_BYTES];
+            Base64.Encoder encoder = Base64.getEncoder();
+
+            CompletableFuture<Void> last = client.send("/upload " + uploadName() + ":" + total);
+            int n;
+            while (stopReason == null && (n = in.readNBytes(buffer, 0, CHUNK_BYTES)) > 0) {
+                last = client.send("/upload_data " + encoder.encodeToString(n == CHUNK_BYTES ? buffer
+                        : Arrays.copyOf(buffer, n)));
+                if (!client.isWritable() || last.isCompletedExceptionally()) {
+                    // Backpressure: let the queue drain (fails if the connection is gone)
+                    awaitWritten(last);
+                }
+                sent += n;
+                long now = System.nanoTime();
+                if (now - lastProgress >= PROGRESS_INTERVAL_NANOS) {
+                    lastProgress = now;
+                    listener.progress(sent, total);
+                }
+                pace(sent, start);
+            }
+            if (stopReason != null) {
+                client.send("/upload_cancel");
+                error = stopReason;
+            } else {
+                awaitWritten(client.send("/upload_end"));
+                listener.progress(sent, total);
+            }
+        } catch (IOException e) {
+            error = e.getMessage();
+        } catch (InterruptedException e) {
+            client.send("/upload_cancel");
+            error = stopReason != null ? stopReason : "Đã hủy gửi file";
+        }
+        listener.finished(error);
+    }
+
+    // ':' ends the name in the protocol
+    private String uploadName() {
+        return file.getFileName().toString().replace(':', '_');
+    }
+
+    private static void awaitWritten(CompletableFuture<Void> write) throws IOException, InterruptedException {
+        try {
+            write.get();
+        } catch (ExecutionException e) {
+            throw new IOException("Mất kết nối");
+        }
+    }
+
+    // Sleep until sent bytes are back under the cap
+    private static void pace(long sent, long start) throws InterruptedException {
+        if (RATE_BYTES_PER_SEC <= 0) {
+            return;
+        }
+        long dueNanos = sent * 1_000_000_000L / RATE_BYTES_PER_SEC;
+        long aheadMillis = (dueNanos - (System.nanoTime() - start)) / 1_000_000;
+        if (aheadMillis > 0) {
+            Thread.sleep(aheadMillis);
+        }
+    }
+}
@@ -0,0 +1,225 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+// Received files, written to a temp cache directory as they stream in.
+// The reader thread only routes FILE_* lines here. Base64 decoding and disk
+// writes run on one background thread, in arrival order. A transcript row
+// keeps just the future path of its file, never the payload.
+public class FileSpool {
+
+    // A file the server has finished sending; path completes once it is on disk
+    public static final class Received {
+        public final String room;
+        public final String seq;
+        public final String sender;
+        public final String name;
+        public final long size;
+        public final CompletableFuture<Path> path = new CompletableFuture<>();
+
+        Received(String room, String seq, String sender, String name, long size) {
+            this.room = room;
+            this.seq = seq;
+            this.sender = sender;
+            this.name = name;
+            this.size = size;
+        }
+    }
+
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "file-spool");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Open transfers by id; reader thread only
+    private final Map<String, Download> downloads = new HashMap<>();
+    private Path dir;
+
+    public FileSpool() {
+        Runtime.getRuntime().addShutdownHook(new Thread(this::deleteCache));
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // READER THREAD
+    // ═══════════════════════════════════════════════════════════════════
+    // Returns the file once its last line is in (FILE: or FILE_END:), else null
+    public Received accept(String line) {
+        if (line.startsWith("FILE_BEGIN:")) {
+            // FILE_BEGIN:id:room:seq:sender:filename:size
+            String[] parts = line.substring(11).split(":", 5);
+            Received file = parts.length == 5 ? parse(parts[1], parts[2], parts[3], parts[4]) : null;
+            if (file != null) {
+                Download download = new Download(file);
+                downloads.put(parts[0], download);
+                worker.execute(download::open);
+            }
+        } else if (line.startsWith("FILE_DATA:")) {
+            int sep = line.indexOf(':', 10);
+            Download download = sep > 0 ? downloads.get(line.substring(10, sep)) : null;
+            if (download != null) {
+                String chunk = line.substring(sep + 1);
+                worker.execute(() -> download.write(chunk));
+            }
+        } else if (line.startsWith("FILE_END:")) {
+            Download download = downloads.remove(line.substring(9));
+            if (download != null) {
+                worker.execute(download::finish);
+                return download.file;
+            }
+        } else if (line.startsWith("FILE_ABORT:")) {
+            // Sender's upload was rejected or cut off midway
+            Download download = downloads.remove(line.substring(11));
+            if (download != null) {
+                worker.execute(download::discard);
+            }
+        } else if (line.startsWith("FILE:")) {
+            // FILE:room:seq:sender:filename:size:base64data (whole file in one line)
+            String[] parts = line.substring(5).split(":", 4);
+            int dataSep = parts.length == 4 ? parts[3].lastIndexOf(':') : -1;
+            Received file = dataSep > 0 ? parse(parts[0], parts[1], parts[2], parts[3].substring(0, dataSep)) : null;
+            if (file != null) {
+                Download download = new Download(file);
+                String data = parts[3].substring(dataSep + 1);
+                worker.execute(() -> {
+                    download.open();
+                    download.write(data);
+                    download.finish();
+                });
+                return file;
+            }
+        }
+        return null;
+    }
+
+    // filename:size (the name may contain ':')
+    private static Received parse(String room, String seq, String sender, String nameAndSize) {
+        int sep = nameAndSize.lastIndexOf(':');
+        if (sep < 0) {
+            return null;
+        }
+        try {
+            long size = Long.parseLong(nameAndSize.substring(sep + 1));
+            return new Received(room, seq, sender, nameAndSize.substring(0, sep), size);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // Connection dropped: transfers in flight will never end
+    public void abortAll() {
+        for (Download download : downloads.values()) {
+            worker.execute(download::discard);
+        }
+        downloads.clear();
+    }
+
+    // Copy a spooled file out, once it is complete
+    public CompletableFuture<Path> saveTo(CompletableFuture<Path> file, Path target) {
+        return file.thenApplyAsync(source -> {
+            try {
+                return Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, worker);
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // WORKER THREAD
+    // ═══════════════════════════════════════════════════════════════════
+    private final class Download {
+        final Received file;
+        private Path path;
+        private OutputStream out;
+        // base64 chars left over from a chunk that was not a multiple of 4
+        private String carry = "";
+
+        Download(Received file) {
+            this.file = file;
+        }
+
+        void open() {
+            try {
+                if (dir == null) {
+                    dir = Files.createTempDirectory("minichat-files");
+                }
+                path = Files.createTempFile(dir, "recv", ".bin");
+                out = Files.newOutputStream(path);
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+
+        void write(String chunk) {
+            if (out == null) {
+                return;
+            }
+            String text = carry.isEmpty() ? chunk : carry + chunk;
+            int usable = text.length() - text.length() % 4;
+            try {
+                out.write(Base64.getDecoder().decode(text.substring(0, usable)));
+                carry = text.substring(usable);
+            } catch (IOException | IllegalArgumentException e) {
+                fail(e);
+            }
+        }
+
+        void finish() {
+            if (out == null) {
+                return;
+            }
+            if (!carry.isEmpty()) {
+                fail(new IOException("File không hợp lệ"));
+                return;
+            }
+            try {
+                out.close();
+                out = null;
+                file.path.complete(path);
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+
+        void discard() {
+            fail(new IOException("Truyền file bị hủy"));
+        }
+
+        private void fail(Exception e) {
+            try {
+                if (out != null) {
+                    out.close();
+                }
+                if (path != null) {
+                    Files.deleteIfExists(path);
+                }
+            } catch (IOException ignored) {
+            }
+            out = null;
+            file.path.completeExceptionally(e);
+        }
+    }
+
+    private void deleteCache() {
+        Path cache = dir;
+        if (cache == null) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(cache)) {
+            files.forEach(f -> f.toFile().delete());
+        } catch (IOException ignored) {
+        }
+        cache.toFile().delete();
+    }
+}
@@ -0,0 +1,197 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+
+// "/file name:size:base64" read straight off the socket (or the same bytes
+// fed from /upload lines): the header is parsed first, then the base64 is
+// checked and relayed to the room in FILE_DATA chunks as it arrives, so the
+// whole file never sits in memory at once
+public class FileUpload implements LineReader.StreamingFrame {
+
+    public static final long MAX_FILE_BYTES = Long.getLong("minichat.maxFileBytes", 64L * 1024 * 1024);
+    private static final int MAX_HEADER_BYTES = 1024;
+    private static final int CHUNK_CHARS = 16 * 1024;
+
+    private static final AtomicLong nextId = new AtomicLong(1);
+
+    private final ClientHandler sender;
+    private final String roomName;
+
+    private final ByteArrayOutputStream header = new ByteArrayOutputStream();
+    private int headerColons = 0;
+    private String id;
+    private long declaredSize;
+    private final StringBuilder chunk = new StringBuilder(CHUNK_CHARS);
+    private long base64Chars = 0;
+    private int padding = 0;
+    private String error;
+    private boolean finished = false;
+    private final ChatEvents.FileTransfer event = new ChatEvents.FileTransfer();
+
+    public FileUpload(ClientHandler sender, String roomName) {
+        this.sender = sender;
+        this.roomName = roomName;
+        if (sender.getUsername() == null || roomName == null) {
+            error = "Hãy vào phòng trước khi gửi file";
+        }
+    }
+
+    // Header and the chunk waiting to be relayed
+    public long retainedBytes() {
+        return header.size() + 2L * chunk.capacity();
+    }
+
+    @Override
+    public void data(ByteBuffer bytes) throws IOException {
+        // Nothing more is relayed once the transfer has ended
+        while (error == null && !finished && bytes.hasRemaining()) {
+            if (id == null) {
+                readHeader(bytes);
+            } else {
+                readData(bytes);
+            }
+        }
+    }
+
+    // name:size: (name may be any UTF-8 except ':', which ends it)
+    private void readHeader(ByteBuffer bytes) {
+        while (bytes.hasRemaining() && id == null) {
+            byte b = bytes.get();
+            if (b == ':' && ++headerColons == 2) {
+                begin(new String(header.toByteArray(), StandardCharsets.UTF_8));
+                return;
+            }
+            header.write(b);
+            if (header.size() > MAX_HEADER_BYTES) {
+                error = "Tên file quá dài";
+                return;
+            }
+        }
+    }
+
+    private void begin(String nameAndSize) {
+        int sep = nameAndSize.indexOf(':');
+        String name = nameAndSize.substring(0, sep);
+        try {
+            declaredSize = Long.parseLong(nameAndSize.substring(sep + 1));
+        } catch (NumberFormatException e) {
+            // Most likely a ':' in the name pushed part of it into the size
+            error = "File không hợp lệ (tên file không được chứa ':')";
+            return;
+        }
+        if (declaredSize < 0 || declaredSize > MAX_FILE_BYTES) {
+            error = "File quá lớn (tối đa " + MAX_FILE_BYTES / (1024 * 1024) + "MB)";
+            return;
+        }
+        id = "u" + nextId.getAndIncrement();
+        if (!Server.beginFileStream(roomName, id, sender.getUsername(), name, declaredSize)) {
+            error = "Không thể gửi file vào phòng: " + roomName;
+            id = null;
+            return;
+        }
+        System.out.println("[FILE] " + sender.getUsername() + " đang gửi " + name + " vào " + roomName);
+        event.begin();
+        event.fileName = name;
+    }
+
+    // Transfer is over: record how it ended
+    private void finish(String outcome) {
+        finished = true;
+        chunk.setLength(0);
+        chunk.trimToSize();
+        event.end();
+        if (event.shouldCommit()) {
+            event.room = roomName;
+            event.sender = sender.getUsername();
+            event.declaredSize = declaredSize;
+            event.received = base64Chars;
+            event.outcome = outcome;
+            event.commit();
+        }
+    }
+
+    private void readData(ByteBuffer bytes) {
+        while (bytes.hasRemaining()) {
+            char c = (char) bytes.get();
+            if (!isBase64(c) || (padding > 0 && c != '=')) {
+                fail("File không hợp lệ");
+                return;
+            }
+            if (c == '=') {
+                padding++;
+            }
+            base64Chars++;
+            if ((base64Chars / 4) * 3 - padding > MAX_FILE_BYTES) {
+                fail("File quá lớn (tối đa " + MAX_FILE_BYTES / (1024 * 1024) + "MB)");
+                return;
+            }
+            chunk.append(c);
+            if (chunk.length() >= CHUNK_CHARS) {
+                flushChunk();
+            }
+        }
+    }
+
+    private static boolean isBase64(char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')
+                || c == '+' || c == '/' || c == '=';
+    }
+
+    private void flushChunk() {
+        if (chunk.length() > 0) {
+            Server.broadcastToRoom(roomName, "FILE_DATA:" + id + ":" + chunk);
+            chunk.setLength(0);
+        }
+    }
+
+    private void fail(String message) {
+        finish("rejected");
+        error = message;
+        Server.broadcastToRoom(roomName, "FILE_ABORT:" + id);
+        chunk.setLength(0);
+    }
+
+    @Override
+    public void end() {
+        sender.uploadEnded(this);
+        if (error == null && id != null && base64Chars % 4 != 0) {
+            fail("File không hợp lệ");
+        }
+        if (error != null) {
+            sender.sendMessage("SYSTEM:" + error);
+            return;
+        }
+        if (id == null) {
+            sender.sendMessage("SYSTEM:File không hợp lệ");
+            return;
+        }
+        flushChunk();
+        Server.broadcastToRoom(roomName, "FILE_END:" + id);
+        finish("completed");
+    }
+
+    @Override
+    public void abort() {
+        sender.uploadEnded(this);
+        stop("disconnected");
+    }
+
+    // Sender gave up on the upload
+    public void cancel() {
+        stop("cancelled");
+    }
+
+    private void stop(String outcome) {
+        if (id != null && error == null && !finished) {
+            Server.broadcastToRoom(roomName, "FILE_ABORT:" + id);
+            finish(outcome);
+        }
+    }
+
+    // Why the upload was refused, or null while it is going fine
+    public String error() {
+        return error;
+    }
+}
@@ -0,0 +1,10 @@
+import java.io.IOException;
+
+// Inbound line longer than the limit for its type; the rest of the line is
+// skipped by the reader, the connection stays open
+public class FrameTooLargeException extends IOException {
+
+    public FrameTooLargeException(int limit) {
+        super("Tin nhắn quá dài (tối đa " + limit + " bytes)");
+    }
+}
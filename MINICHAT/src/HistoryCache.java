@@ -0,0 +1,338 @@
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.swing.SwingUtilities;
+
+// Per-user cache of recent room messages, so an opened room shows its last
+// messages at once. One append-only file of protocol lines with their send
+// time (time:MSG:room:seq:...), indexed in memory by room (seq + file offset
+// of each record). A room is only appended to while it is "synced", i.e. the
+// cache is known to have no holes up to the newest message. Seqs restart when
+// the server's room does, so each room's records belong to one epoch, set by
+// a RESET:room:epoch record. File I/O runs on one background thread;
+// callbacks run on the EDT. Older pages fall back to the server once the
+// cache runs out.
+public class HistoryCache implements TranscriptStore {
+
+    private static final long COMPACT_BYTES = 4L * 1024 * 1024;
+    private static final int KEEP_PER_ROOM = 1000;
+
+    private final Path file;
+    private final TranscriptStore fallback;
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "history-cache");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // EDT only
+    private final Set<String> synced = new HashSet<>();
+
+    // Worker only
+    private final Map<String, RoomIndex> rooms = new HashMap<>();
+    private RandomAccessFile data;
+
+    public interface Recent {
+        void loaded(List<String> lines, long lastSeq, long epoch);
+    }
+
+    // Records of one room, in seq order
+    private static final class RoomIndex {
+        // Room incarnation the seqs belong to, 0 if not known yet
+        final long epoch;
+        long[] seqs = new long[64];
+        long[] offsets = new long[64];
+        int[] lengths = new int[64];
+        int size = 0;
+
+        RoomIndex(long epoch) {
+            this.epoch = epoch;
+        }
+
+        void add(long seq, long offset, int length) {
+            if (size == seqs.length) {
+                seqs = Arrays.copyOf(seqs, size * 2);
+                offsets = Arrays.copyOf(offsets, size * 2);
+                lengths = Arrays.copyOf(lengths, size * 2);
+            }
+            seqs[size] = seq;
+            offsets[size] = offset;
+            lengths[size] = length;
+            size++;
+        }
+
+        long lastSeq() {
+            return size > 0 ? seqs[size - 1] : 0;
+        }
+
+        // Index of the first record with seq >= target
+        int lowerBound(long target) {
+            int lo = 0;
+            int hi = size;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (seqs[mid] < target) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+    }
+
+    public HistoryCache(String username, TranscriptStore fallback) {
+        String safeName = username.replaceAll("[^\\p{L}\\p{N}_.-]", "_");
+        this.file = Paths.get(System.getProperty("user.home"), ".minichat", "cache", safeName, "history.log");
+        this.fallback = fallback;
+        worker.execute(this::open);
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // EDT
+    // ═══════════════════════════════════════════════════════════════════
+    // Newest cached lines of a room (oldest first), the seq of the last one and their epoch
+    public void recent(String room, int limit, Recent callback) {
+        worker.execute(() -> {
+            RoomIndex index = rooms.get(room);
+            List<String> lines = index != null ? read(index, Math.max(0, index.size - limit), index.size)
+                    : new ArrayList<>();
+            long lastSeq = index != null ? index.lastSeq() : 0;
+            long epoch = index != null ? index.epoch : 0;
+            SwingUtilities.invokeLater(() -> callback.loaded(lines, lastSeq, epoch));
+        });
+    }
+
+    // Live or caught-up MSG line (time:MSG:...); ignored unless its room is synced
+    public void append(String stamped) {
+        String[] parts = TranscriptStore.lineOf(stamped).split(":", 4);
+        if (parts.length < 4 || !synced.contains(parts[1])) {
+            return;
+        }
+        long seq;
+        try {
+            seq = Long.parseLong(parts[2]);
+        } catch (NumberFormatException e) {
+            return;
+        }
+        worker.execute(() -> write(parts[1], seq, stamped));
+    }
+
+    // The cache holds everything up to the server's newest line of this
+    // incarnation; records of another epoch are dropped first
+    public void markSynced(String room, long epoch) {
+        synced.add(room);
+        worker.execute(() -> {
+            RoomIndex index = rooms.get(room);
+            if (index == null || index.epoch != epoch) {
+                rooms.put(room, new RoomIndex(epoch));
+                appendRecord("RESET:" + room + ":" + epoch);
+            }
+        });
+    }
+
+    // Messages may be missing from here on (GAP, session lost, room reopened)
+    public void unsync(String room) {
+        synced.remove(room);
+    }
+
+    public void unsyncAll() {
+        synced.clear();
+    }
+
+    // Cached lines are too far behind the server to be joined up: drop them
+    // (a RESET:room record keeps them dropped when the file is scanned again)
+    public void forget(String room) {
+        worker.execute(() -> {
+            if (rooms.remove(room) != null) {
+                appendRecord("RESET:" + room);
+            }
+        });
+    }
+
+    @Override
+    public void loadBefore(String room, long beforeSeq, int limit, Callback callback) {
+        worker.execute(() -> {
+            RoomIndex index = rooms.get(room);
+            int end = index != null ? index.lowerBound(beforeSeq) : 0;
+            if (end == 0) {
+                SwingUtilities.invokeLater(() -> fallback.loadBefore(room, beforeSeq, limit, callback));
+                return;
+            }
+            List<String> lines = read(index, Math.max(0, end - limit), end);
+            SwingUtilities.invokeLater(() -> callback.loaded(lines, true));
+        });
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // WORKER
+    // ═══════════════════════════════════════════════════════════════════
+    private void open() {
+        try {
+            Files.createDirectories(file.getParent());
+            data = new RandomAccessFile(file.toFile(), "rw");
+            scan();
+            if (data.length() > COMPACT_BYTES) {
+                compact();
+            }
+        } catch (IOException e) {
+            System.out.println("⚠ Không mở được cache " + file + ": " + e.getMessage());
+            data = null;
+        }
+    }
+
+    // Rebuild the index; a record cut short by a crash is dropped
+    private void scan() throws IOException {
+        rooms.clear();
+        long offset = 0;
+        long recordStart = 0;
+        ByteArrayOutputStream record = new ByteArrayOutputStream();
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+            int b;
+            while ((b = in.read()) >= 0) {
+                offset++;
+                if (b != '\n') {
+                    record.write(b);
+                    continue;
+                }
+                index(new String(record.toByteArray(), StandardCharsets.UTF_8), recordStart, record.size());
+                record.reset();
+                recordStart = offset;
+            }
+        }
+        data.setLength(recordStart);
+    }
+
+    private void index(String record, long offset, int length) {
+        if (record.startsWith("RESET:")) {
+            // RESET:room, or RESET:room:epoch to start a new incarnation
+            String[] parts = record.split(":");
+            rooms.remove(parts[1]);
+            if (parts.length > 2) {
+                try {
+                    rooms.put(parts[1], new RoomIndex(Long.parseLong(parts[2])));
+                } catch (NumberFormatException ignored) {
+                }
+            }
+            return;
+        }
+        String[] parts = TranscriptStore.lineOf(record).split(":", 4);
+        if (parts.length < 4) {
+            return;
+        }
+        try {
+            long seq = Long.parseLong(parts[2]);
+            RoomIndex index = rooms.computeIfAbsent(parts[1], r -> new RoomIndex(0));
+            if (seq > index.lastSeq()) {
+                index.add(seq, offset, length);
+            }
+        } catch (NumberFormatException ignored) {
+        }
+    }
+
+    private void write(String room, long seq, String line) {
+        RoomIndex index = rooms.computeIfAbsent(room, r -> new RoomIndex(0));
+        if (data == null || seq <= index.lastSeq()) {
+            return;
+        }
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        long offset = appendRecord(line);
+        if (offset < 0) {
+            return;
+        }
+        index.add(seq, offset, bytes.length);
+        try {
+            if (data.length() > 2 * COMPACT_BYTES) {
+                compact();
+            }
+        } catch (IOException e) {
+            System.out.println("⚠ Lỗi ghi cache: " + e.getMessage());
+        }
+    }
+
+    // Offset of the new record, or -1
+    private long appendRecord(String line) {
+        if (data == null) {
+            return -1;
+        }
+        try {
+            long offset = data.length();
+            data.seek(offset);
+            data.write(line.getBytes(StandardCharsets.UTF_8));
+            data.write('\n');
+            return offset;
+        } catch (IOException e) {
+            System.out.println("⚠ Lỗi ghi cache: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    private List<String> read(RoomIndex index, int from, int to) {
+        List<String> lines = new ArrayList<>(to - from);
+        if (data == null) {
+            // Cache file could not be opened
+            return lines;
+        }
+        try {
+            for (int i = from; i < to; i++) {
+                byte[] bytes = new byte[index.lengths[i]];
+                data.seek(index.offsets[i]);
+                data.readFully(bytes);
+                lines.add(new String(bytes, StandardCharsets.UTF_8));
+            }
+        } catch (IOException e) {
+            lines.clear();
+        }
+        return lines;
+    }
+
+    // Rewrite the file with only the newest KEEP_PER_ROOM records of each room
+    // (after a RESET:room:epoch header, so the epochs survive)
+    private void compact() throws IOException {
+        List<long[]> kept = new ArrayList<>();
+        List<String> headers = new ArrayList<>();
+        for (Map.Entry<String, RoomIndex> room : rooms.entrySet()) {
+            RoomIndex index = room.getValue();
+            if (index.epoch != 0) {
+                headers.add("RESET:" + room.getKey() + ":" + index.epoch + "\n");
+            }
+            for (int i = Math.max(0, index.size - KEEP_PER_ROOM); i < index.size; i++) {
+                kept.add(new long[] { index.offsets[i], index.lengths[i] });
+            }
+        }
+        kept.sort((a, b) -> Long.compare(a[0], b[0]));
+        Path temp = file.resolveSibling("history.tmp");
+        try (RandomAccessFile out = new RandomAccessFile(temp.toFile(), "rw")) {
+            out.setLength(0);
+            for (String header : headers) {
+                out.write(header.getBytes(StandardCharsets.UTF_8));
+            }
+            for (long[] record : kept) {
+                byte[] bytes = new byte[(int) record[1] + 1];
+                data.seek(record[0]);
+                data.readFully(bytes);
+                out.write(bytes);
+            }
+        }
+        data.close();
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        data = new RandomAccessFile(file.toFile(), "rw");
+        scan();
+    }
+}
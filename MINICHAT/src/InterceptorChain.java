@@ -0,0 +1,113 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+public class InterceptorChain {
+
+    // Đo thời gian từng interceptor (-Dminichat.interceptorTiming=true)
+    private static final boolean TIMING = Boolean.getBoolean("minichat.interceptorTiming");
+    private static final int STAGES = MessageInterceptor.Stage.values().length;
+
+    private static final List<MessageInterceptor> registered = new ArrayList<>();
+
+    // Fixed per-stage arrays built once by compile(); read without locking
+    private static volatile MessageInterceptor[][] chains = new MessageInterceptor[STAGES][0];
+    private static volatile LongAdder[][] nanos = new LongAdder[STAGES][0];
+    private static volatile LongAdder[][] calls = new LongAdder[STAGES][0];
+
+    // Startup only, in chain order
+    public static synchronized void register(MessageInterceptor interceptor) {
+        registered.add(interceptor);
+    }
+
+    // Class names from -Dminichat.interceptors=a.B,c.D (public no-arg constructors)
+    public static void registerFromProperty() {
+        String names = System.getProperty("minichat.interceptors", "").trim();
+        if (names.isEmpty()) {
+            return;
+        }
+        for (String name : names.split(",")) {
+            try {
+                register((MessageInterceptor) Class.forName(name.trim()).getDeclaredConstructor().newInstance());
+            } catch (ReflectiveOperationException | ClassCastException e) {
+                System.out.println("⚠ Không nạp được interceptor " + name.trim() + ": " + e);
+            }
+        }
+    }
+
+    public static synchronized void compile() {
+        MessageInterceptor[][] built = new MessageInterceptor[STAGES][];
+        LongAdder[][] builtNanos = new LongAdder[STAGES][];
+        LongAdder[][] builtCalls = new LongAdder[STAGES][];
+        for (MessageInterceptor.Stage stage : MessageInterceptor.Stage.values()) {
+            List<MessageInterceptor> chain = new ArrayList<>();
+            for (MessageInterceptor interceptor : registered) {
+                if (interceptor.handles(stage)) {
+                    chain.add(interceptor);
+                }
+            }
+            int s = stage.ordinal();
+            built[s] = chain.toArray(new MessageInterceptor[0]);
+            builtNanos[s] = new LongAdder[chain.size()];
+            builtCalls[s] = new LongAdder[chain.size()];
+            for (int i = 0; i < chain.size(); i++) {
+                builtNanos[s][i] = new LongAdder();
+                builtCalls[s][i] = new LongAdder();
+            }
+        }
+        nanos = builtNanos;
+        calls = builtCalls;
+        chains = built;
+        if (!registered.isEmpty()) {
+            System.out.println("🧩 Interceptors: " + registered.size() + (TIMING ? " (timing on)" : ""));
+        }
+    }
+
+    // Runs the stage's chain; the message itself when nothing is registered
+    public static String apply(MessageInterceptor.Stage stage, ClientHandler client, String room, String message) {
+        MessageInterceptor[] chain = chains[stage.ordinal()];
+        if (chain.length == 0) {
+            return message;
+        }
+        if (TIMING) {
+            return applyTimed(stage, chain, client, room, message);
+        }
+        for (int i = 0; i < chain.length && message != null; i++) {
+            message = chain[i].intercept(stage, client, room, message);
+        }
+        return message;
+    }
+
+    private static String applyTimed(MessageInterceptor.Stage stage, MessageInterceptor[] chain,
+            ClientHandler client, String room, String message) {
+        LongAdder[] stageNanos = nanos[stage.ordinal()];
+        LongAdder[] stageCalls = calls[stage.ordinal()];
+        for (int i = 0; i < chain.length && message != null; i++) {
+            long start = System.nanoTime();
+            message = chain[i].intercept(stage, client, room, message);
+            stageNanos[i].add(System.nanoTime() - start);
+            stageCalls[i].increment();
+        }
+        return message;
+    }
+
+    // One line per interceptor and stage: calls and average µs
+    public static String stats() {
+        StringBuilder sb = new StringBuilder();
+        MessageInterceptor[][] snapshot = chains;
+        for (MessageInterceptor.Stage stage : MessageInterceptor.Stage.values()) {
+            int s = stage.ordinal();
+            for (int i = 0; i < snapshot[s].length; i++) {
+                long n = calls[s][i].sum();
+                sb.append(stage).append(' ').append(snapshot[s][i].getClass().getSimpleName())
+                        .append(": ").append(n).append(" calls, ")
+                        .append(n == 0 ? 0 : nanos[s][i].sum() / n / 1000.0).append(" µs avg\n");
+            }
+        }
+        return sb.toString();
+    }
+
+    public static boolean isTiming() {
+        return TIMING;
+    }
+}
@@ -0,0 +1,239 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+// Reads '\n' terminated UTF-8 lines from a channel into pooled buffers.
+// An idle connection only holds the smallest size class while it waits;
+// longer lines move up to bigger classes and the big buffer is returned as
+// soon as the line is consumed. Only the reading thread touches the buffer.
+//
+// Each line type has a byte limit chosen by prefix; an oversized line is
+// rejected as soon as the limit is passed and the rest of it is skipped
+// without being stored. Lines with a streaming prefix are handed to a
+// StreamingFrame piece by piece instead of being built as one String.
+public class LineReader {
+
+    public interface StreamingFrame {
+        // Next part of the line after the prefix; valid only during the call
+        void data(ByteBuffer bytes) throws IOException;
+
+        // Newline reached
+        void end() throws IOException;
+
+        // Connection lost before the newline
+        void abort();
+    }
+
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+
+    private final SocketChannel channel;
+    private ByteBuffer buffer;
+    private int scanned = 0;
+
+    private final List<byte[]> limitPrefixes = new ArrayList<>();
+    private final List<Integer> limitSizes = new ArrayList<>();
+    private int defaultLimit = Integer.MAX_VALUE;
+
+    private byte[] streamPrefix;
+    private Supplier<StreamingFrame> streamFactory;
+    private StreamingFrame streaming;
+    private boolean discarding = false;
+
+    public LineReader(SocketChannel channel) {
+        this.channel = channel;
+    }
+
+    // Lines starting with prefix may be at most maxBytes long (first match wins)
+    public void limit(String prefix, int maxBytes) {
+        limitPrefixes.add(prefix.getBytes(StandardCharsets.UTF_8));
+        limitSizes.add(maxBytes);
+    }
+
+    public void defaultLimit(int maxBytes) {
+        defaultLimit = maxBytes;
+    }
+
+    public void stream(String prefix, Supplier<StreamingFrame> factory) {
+        streamPrefix = prefix.getBytes(StandardCharsets.UTF_8);
+        streamFactory = factory;
+    }
+
+    // Read from other threads for memory accounting
+    public long bufferBytes() {
+        ByteBuffer current = buffer;
+        return current == null ? 0 : current.capacity();
+    }
+
+    public String readLine() throws IOException {
+        try {
+            while (true) {
+                if (buffer == null) {
+                    buffer = BufferPool.acquire(BufferPool.smallestSize());
+                    scanned = 0;
+                }
+                int end = buffer.position();
+                int newline = -1;
+                for (int i = scanned; i < end; i++) {
+                    if (buffer.get(i) == '\n') {
+                        newline = i;
+                        break;
+                    }
+                }
+
+                if (discarding) {
+                    if (newline >= 0) {
+                        skip(newline + 1);
+                        discarding = false;
+                        continue;
+                    }
+                    skip(end);
+                    if (!readMore()) {
+                        return null;
+                    }
+                    continue;
+                }
+                if (streaming != null) {
+                    feed(newline >= 0 ? newline : end, newline >= 0);
+                    continue;
+                }
+                if (startsWith(streamPrefix, newline >= 0 ? newline : end)) {
+                    startStream();
+                    continue;
+                }
+                if (newline >= 0) {
+                    int limit = limitFor(newline);
+                    if (newline > limit) {
+                        skip(newline + 1);
+                        throw new FrameTooLargeException(limit);
+                    }
+                    return takeLine(newline);
+                }
+
+                scanned = end;
+                int limit = limitFor(end);
+                if (end > limit) {
+                    skip(end);
+                    discarding = true;
+                    throw new FrameTooLargeException(limit);
+                }
+                if (!buffer.hasRemaining()) {
+                    grow(buffer.capacity() * 2);
+                }
+                if (!readMore()) {
+                    return null;
+                }
+            }
+        } catch (FrameTooLargeException e) {
+            throw e;
+        } catch (IOException e) {
+            if (streaming != null) {
+                streaming.abort();
+                streaming = null;
+            }
+            release();
+            throw e;
+        }
+    }
+
+    // Read into the (possibly just released) buffer; false and released on EOF
+    private boolean readMore() throws IOException {
+        if (buffer == null) {
+            buffer = BufferPool.acquire(BufferPool.smallestSize());
+        }
+        if (channel.read(buffer) < 0) {
+            if (streaming != null) {
+                streaming.abort();
+                streaming = null;
+            }
+            release();
+            return false;
+        }
+        return true;
+    }
+
+    // Limit for the line currently in the buffer (length bytes seen so far)
+    private int limitFor(int length) {
+        for (int i = 0; i < limitPrefixes.size(); i++) {
+            if (startsWith(limitPrefixes.get(i), length)) {
+                return limitSizes.get(i);
+            }
+        }
+        return defaultLimit;
+    }
+
+    private boolean startsWith(byte[] prefix, int length) {
+        if (prefix == null || length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (buffer.get(i) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void startStream() {
+        streaming = streamFactory.get();
+        skip(streamPrefix.length);
+        if (buffer.capacity() < STREAM_BUFFER_SIZE) {
+            grow(STREAM_BUFFER_SIZE);
+        }
+    }
+
+    // Hand bytes [0, upTo) to the streaming frame, then drop them
+    private void feed(int upTo, boolean finished) throws IOException {
+        int dataEnd = finished && upTo > 0 && buffer.get(upTo - 1) == '\r' ? upTo - 1 : upTo;
+        if (dataEnd > 0) {
+            ByteBuffer slice = buffer.duplicate();
+            slice.position(0).limit(dataEnd);
+            streaming.data(slice);
+        }
+        if (finished) {
+            StreamingFrame done = streaming;
+            streaming = null;
+            skip(upTo + 1);
+            done.end();
+            return;
+        }
+        skip(upTo);
+        readMore();
+    }
+
+    private String takeLine(int newline) {
+        int lineEnd = newline > 0 && buffer.get(newline - 1) == '\r' ? newline - 1 : newline;
+        ByteBuffer slice = buffer.duplicate();
+        slice.position(0).limit(lineEnd);
+        String line = StandardCharsets.UTF_8.decode(slice).toString();
+        skip(newline + 1);
+        return line;
+    }
+
+    // Drop the first count bytes, keep the rest for the next call
+    private void skip(int count) {
+        int end = buffer.position();
+        buffer.limit(end).position(count);
+        buffer.compact();
+        scanned = 0;
+        if (buffer.position() == 0 && streaming == null && buffer.capacity() > BufferPool.smallestSize()) {
+            release();
+        }
+    }
+
+    private void grow(int size) {
+        ByteBuffer bigger = BufferPool.acquire(size);
+        buffer.flip();
+        bigger.put(buffer);
+        BufferPool.release(buffer);
+        buffer = bigger;
+    }
+
+    private void release() {
+        BufferPool.release(buffer);
+        buffer = null;
+    }
+}
@@ -0,0 +1,169 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+public class MemoryBudget {
+
+    // ════════════════════════════════════════════════════════════════════
+    // ƯỚC LƯỢNG BỘ NHỚ: số liệu gần đúng, đủ để so sánh và chọn ai cần cắt.
+    // Queued lines are charged in full to every connection that holds them
+    // (fan-out shares one String), so totals are an upper bound.
+    // ════════════════════════════════════════════════════════════════════
+    public static final long BUDGET_BYTES = Long.getLong("minichat.memoryBudgetMB",
+            Runtime.getRuntime().maxMemory() / 2 / (1024 * 1024)) * 1024 * 1024;
+
+    // Only connections with at least this much waiting are shed
+    private static final long SLOW_QUEUE_BYTES = Long.getLong("minichat.slowQueueKB", 1024) * 1024;
+
+    // ClientHandler + ConnectionWriter + 2 Thread objects and their small collections
+    private static final long CONNECTION_BASE_BYTES = 4 * 1024;
+    private static final long ROOM_BASE_BYTES = 1024;
+    private static final long MEMBER_BYTES = 48;
+    private static final long REF_BYTES = 16;
+
+    // Users allowed to run /memtop (-Dminichat.admins=name,name); nobody by default
+    private static final Set<String> ADMINS = new HashSet<>(
+            Arrays.asList(System.getProperty("minichat.admins", "").split(",")));
+
+    // Every writer thread updates this on every line: a LongAdder spreads the
+    // writes over cells instead of fighting over one cache line
+    private static final LongAdder queued = new LongAdder();
+    private static final AtomicBoolean shedScheduled = new AtomicBoolean();
+
+    public static void start() {
+        Server.scheduler.scheduleWithFixedDelay(MemoryBudget::enforceSafely, 5, 5, TimeUnit.SECONDS);
+    }
+
+    public static boolean canViewTop(String username) {
+        return username != null && !username.isEmpty() && ADMINS.contains(username);
+    }
+
+    // An exception would cancel the periodic task and stop shedding for good
+    private static void enforceSafely() {
+        try {
+            enforce();
+        } catch (RuntimeException e) {
+            System.out.println("⚠ Lỗi kiểm tra ngân sách bộ nhớ: " + e);
+        }
+    }
+
+    // String header + array + one queue slot; chars counted as UTF-16
+    public static long lineBytes(String line) {
+        return 40 + REF_BYTES + 2L * line.length();
+    }
+
+    // Called by writers as lines are queued (+) and written/dropped (-).
+    // Queues are the part that grows fast, so growth triggers an early check.
+    public static void queued(long delta) {
+        queued.add(delta);
+        if (delta > 0 && queued.sum() > BUDGET_BYTES && shedScheduled.compareAndSet(false, true)) {
+            Server.scheduler.execute(MemoryBudget::enforceSafely);
+        }
+    }
+
+    public static long connectionBytes(ClientHandler client) {
+        return CONNECTION_BASE_BYTES + client.memoryBytes();
+    }
+
+    public static long roomBytes(Room room) {
+        long bytes = ROOM_BASE_BYTES + room.getMemberCount() * MEMBER_BYTES + room.getHistory().approxBytes();
+        if (room.getRing() != null) {
+            bytes += RoomRing.CAPACITY * REF_BYTES;
+        }
+        return bytes;
+    }
+
+    // Item with its size taken once: sizes move while other threads queue and
+    // write, so sorting on live sizes could break the comparator's contract
+    private static final class Sized<T> {
+        final T item;
+        final long bytes;
+
+        Sized(T item, long bytes) {
+            this.item = item;
+            this.bytes = bytes;
+        }
+    }
+
+    // Heaviest first
+    private static <T> List<Sized<T>> bySize(List<T> items, ToLongFunction<T> size) {
+        List<Sized<T>> sized = new ArrayList<>(items.size());
+        for (T item : items) {
+            sized.add(new Sized<>(item, size.applyAsLong(item)));
+        }
+        sized.sort((a, b) -> Long.compare(b.bytes, a.bytes));
+        return sized;
+    }
+
+    private static List<ClientHandler> clients() {
+        synchronized (Server.allClients) {
+            return new ArrayList<>(Server.allClients);
+        }
+    }
+
+    public static long total() {
+        long total = 0;
+        for (ClientHandler client : clients()) {
+            total += connectionBytes(client);
+        }
+        for (Room room : Server.rooms.values()) {
+            total += roomBytes(room);
+        }
+        return total;
+    }
+
+    // Over budget: drop the slow connections holding the most, heaviest first
+    private static void enforce() {
+        shedScheduled.set(false);
+        long total = total();
+        if (total <= BUDGET_BYTES) {
+            return;
+        }
+        for (Sized<ClientHandler> candidate : bySize(clients(), MemoryBudget::connectionBytes)) {
+            if (total <= BUDGET_BYTES) {
+                break;
+            }
+            ClientHandler client = candidate.item;
+            if (client.queuedBytes() < SLOW_QUEUE_BYTES) {
+                continue;
+            }
+            long bytes = candidate.bytes;
+            System.out.println("🧹 Quá ngân sách bộ nhớ (" + mb(total) + "/" + mb(BUDGET_BYTES) + "), ngắt "
+                    + client.getUsername() + " đang giữ " + mb(bytes));
+            client.shed();
+            total -= bytes;
+        }
+        if (total > BUDGET_BYTES) {
+            System.out.println("⚠ Vẫn vượt ngân sách bộ nhớ: " + mb(total) + "/" + mb(BUDGET_BYTES));
+        }
+    }
+
+    // /memtop: biggest connections and rooms
+    public static List<String> top(int n) {
+        List<String> lines = new ArrayList<>();
+        lines.add("Bộ nhớ ước tính: " + mb(total()) + " / ngân sách " + mb(BUDGET_BYTES));
+
+        List<Sized<ClientHandler>> byClient = bySize(clients(), MemoryBudget::connectionBytes);
+        for (Sized<ClientHandler> entry : byClient.subList(0, Math.min(n, byClient.size()))) {
+            lines.add("👤 " + entry.item.getUsername() + ": " + mb(entry.bytes) + " (queue "
+                    + mb(entry.item.queuedBytes()) + ")");
+        }
+
+        List<Sized<Room>> byRoom = bySize(new ArrayList<>(Server.rooms.values()), MemoryBudget::roomBytes);
+        for (Sized<Room> entry : byRoom.subList(0, Math.min(n, byRoom.size()))) {
+            lines.add("🏠 " + entry.item.getName() + ": " + mb(entry.bytes) + " (" + entry.item.getMemberCount()
+                    + " members)");
+        }
+        return lines;
+    }
+
+    private static String mb(long bytes) {
+        return String.format("%.2fMB", bytes / (1024.0 * 1024.0));
+    }
+}
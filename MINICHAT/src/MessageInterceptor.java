@@ -0,0 +1,24 @@
+// Hook into the message path without touching ClientHandler/Server.
+// Return the same String to pass it on untouched, a new String to rewrite
+// it, or null to stop it (later interceptors and the default handling are
+// skipped). OUTBOUND runs on the connection's writer thread, the other
+// stages on the sender's reader thread, so implementations must be
+// thread-safe.
+public interface MessageInterceptor {
+
+    enum Stage {
+        // Raw line from a client, before processMessage; room is null
+        INBOUND,
+        // Body of a room message before it is numbered and fanned out
+        BROADCAST,
+        // Line about to be written to client (bulk file chunks excluded); room is null
+        OUTBOUND
+    }
+
+    String intercept(Stage stage, ClientHandler client, String room, String message);
+
+    // Stages this interceptor wants; the others never call it
+    default boolean handles(Stage stage) {
+        return true;
+    }
+}
@@ -0,0 +1,88 @@
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class Room {
+
+    // Seqs restart with each incarnation of a room (server restart, eviction);
+    // the epoch tells a client cache which incarnation its seqs belong to
+    private static final AtomicLong EPOCHS = new AtomicLong(System.currentTimeMillis());
+
+    private final String name;
+    private final String owner;
+    private final boolean defaultRoom;
+    private final long createdAt;
+    private final long epoch = EPOCHS.incrementAndGet();
+    private volatile long lastActivity;
+    private boolean closed = false;
+
+    // Members set is also the lock for join/leave/broadcast ordering
+    private final Set<ClientHandler> members = Collections.synchronizedSet(new HashSet<>());
+    private final RoomHistory history = new RoomHistory();
+
+    // Only allocated when the ring delivery engine is enabled
+    private final RoomRing ring;
+
+    public Room(String name, String owner, boolean defaultRoom) {
+        this.name = name;
+        this.owner = owner;
+        this.defaultRoom = defaultRoom;
+        this.createdAt = System.currentTimeMillis();
+        this.lastActivity = createdAt;
+        this.ring = Server.RING_DELIVERY ? new RoomRing(name) : null;
+    }
+
+    public long getEpoch() {
+        return epoch;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public boolean isDefaultRoom() {
+        return defaultRoom;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public long getLastActivity() {
+        return lastActivity;
+    }
+
+    public void touch() {
+        lastActivity = System.currentTimeMillis();
+    }
+
+    public Set<ClientHandler> getMembers() {
+        return members;
+    }
+
+    public int getMemberCount() {
+        return members.size();
+    }
+
+    public RoomHistory getHistory() {
+        return history;
+    }
+
+    public RoomRing getRing() {
+        return ring;
+    }
+
+    // Guarded by synchronized (members)
+    public boolean isClosed() {
+        return closed;
+    }
+
+    public void close() {
+        closed = true;
+    }
+}
@@ -0,0 +1,58 @@
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+public class RoomCatalog {
+
+    // Số thay đổi giữ lại để trả delta; client cũ hơn thì nhận lại toàn bộ
+    private static final int MAX_CHANGES = 1000;
+
+    private static class Change {
+        final long version;
+        final String room;
+
+        Change(long version, String room) {
+            this.version = version;
+            this.room = room;
+        }
+    }
+
+    private final ArrayDeque<Change> changes = new ArrayDeque<>();
+    private long version = 1;
+
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    // Room created, removed or member count changed
+    public synchronized void changed(String room) {
+        version++;
+        changes.addLast(new Change(version, room));
+        if (changes.size() > MAX_CHANGES) {
+            changes.removeFirst();
+        }
+    }
+
+    // Rooms changed after the given version, or null if the log no longer
+    // reaches back that far
+    public synchronized Set<String> changedSince(long since) {
+        if (since > version) {
+            return null;
+        }
+        Change oldest = changes.peekFirst();
+        if (since < version && (oldest == null || oldest.version > since + 1)) {
+            return null;
+        }
+        Set<String> result = new LinkedHashSet<>();
+        Iterator<Change> it = changes.descendingIterator();
+        while (it.hasNext()) {
+            Change change = it.next();
+            if (change.version <= since) {
+                break;
+            }
+            result.add(change.room);
+        }
+        return result;
+    }
+}
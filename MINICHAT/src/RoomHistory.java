@@ -0,0 +1,83 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+public class RoomHistory {
+
+    // Giới hạn buffer: theo số tin và tổng số ký tự (FILE payload rất lớn)
+    private static final int MAX_ENTRIES = 500;
+    private static final long MAX_CHARS = 8L * 1024 * 1024;
+
+    private final ArrayDeque<Entry> entries = new ArrayDeque<>();
+    private long lastSeq = 0;
+    private long totalChars = 0;
+
+    private static class Entry {
+        final long seq;
+        final String line;
+        final long time = System.currentTimeMillis();
+
+        Entry(long seq, String line) {
+            this.seq = seq;
+            this.line = line;
+        }
+
+        // time:line - the send time travels with history pages
+        String stamped() {
+            return time + ":" + line;
+        }
+    }
+
+    public synchronized long nextSeq() {
+        return ++lastSeq;
+    }
+
+    public synchronized long getLastSeq() {
+        return lastSeq;
+    }
+
+    public synchronized void append(long seq, String line) {
+        entries.addLast(new Entry(seq, line));
+        totalChars += line.length();
+
+        // Drop oldest entries, always keep the newest one
+        while (entries.size() > 1 && (entries.size() > MAX_ENTRIES || totalChars > MAX_CHARS)) {
+            totalChars -= entries.removeFirst().line.length();
+        }
+    }
+
+    // Entry + line estimate, see MemoryBudget.lineBytes
+    public synchronized long approxBytes() {
+        return entries.size() * 72L + totalChars * 2;
+    }
+
+    // Seq of the oldest message still buffered (lastSeq + 1 if empty)
+    public synchronized long getOldestSeq() {
+        return entries.isEmpty() ? lastSeq + 1 : entries.peekFirst().seq;
+    }
+
+    // Up to limit lines with seq < beforeSeq (the newest such), in order, as time:line
+    public synchronized List<String> before(long beforeSeq, int limit) {
+        ArrayDeque<String> result = new ArrayDeque<>();
+        Iterator<Entry> it = entries.descendingIterator();
+        while (it.hasNext() && result.size() < limit) {
+            Entry entry = it.next();
+            if (entry.seq < beforeSeq) {
+                result.addFirst(entry.stamped());
+            }
+        }
+        return new ArrayList<>(result);
+    }
+
+    // All buffered lines with seq > afterSeq, in order (as time:line if stamped)
+    public synchronized List<String> since(long afterSeq, boolean stamped) {
+        List<String> result = new ArrayList<>();
+        for (Entry entry : entries) {
+            if (entry.seq > afterSeq) {
+                result.add(stamped ? entry.stamped() : entry.line);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,54 @@
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+public class RoomRing {
+
+    // Ring cố định cho mỗi phòng: ghi 1 lần, mỗi người nhận đọc bằng cursor riêng
+    public static final int CAPACITY = Integer.highestOneBit(
+            Math.max(64, Integer.getInteger("minichat.ringSize", 1024)));
+    private static final int MASK = CAPACITY - 1;
+
+    // Slot remembers which seq it holds: publish() overwrites the slot before it
+    // bumps published, so a reader one lap behind must not trust the index alone
+    private static final class Slot {
+        final long seq;
+        final String line;
+
+        Slot(long seq, String line) {
+            this.seq = seq;
+            this.line = line;
+        }
+    }
+
+    private final String roomName;
+    private final AtomicReferenceArray<Slot> slots = new AtomicReferenceArray<>(CAPACITY);
+    private volatile long published = 0;
+
+    public RoomRing(String roomName) {
+        this.roomName = roomName;
+    }
+
+    public String getRoomName() {
+        return roomName;
+    }
+
+    public long getPublished() {
+        return published;
+    }
+
+    // Single producer: caller holds the room's members lock
+    public void publish(String line) {
+        long seq = published + 1;
+        slots.set((int) (seq & MASK), new Slot(seq, line));
+        published = seq;
+    }
+
+    // Line at seq, or null if it has been overwritten (reader lapped)
+    public String read(long seq) {
+        if (published - seq >= CAPACITY) {
+            return null;
+        }
+        Slot slot = slots.get((int) (seq & MASK));
+        // Producer may already have reused the slot for seq + CAPACITY
+        return slot != null && slot.seq == seq ? slot.line : null;
+    }
+}
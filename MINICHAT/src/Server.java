@@ -1,123 +1,528 @@
-import java.io.IOException;
-import java.net.ServerSocket;
-import java.net.Socket;
-import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-
-public class Server {
-
-    private static final int PORT = 9999;
-
-    // ════════════════════════════════════════════════════════════════════
-    // QUẢN LÝ ROOMS VÀ USERS
-    // ════════════════════════════════════════════════════════════════════
-    public static Map<String, Set<ClientHandler>> rooms = new ConcurrentHashMap<>();
-    public static Set<ClientHandler> allClients = Collections.synchronizedSet(new HashSet<>());
-
-    // Default rooms
-    static {
-        rooms.put("General", Collections.synchronizedSet(new HashSet<>()));
-        rooms.put("Gaming", Collections.synchronizedSet(new HashSet<>()));
-        rooms.put("Music", Collections.synchronizedSet(new HashSet<>()));
-        rooms.put("Random", Collections.synchronizedSet(new HashSet<>()));
-    }
-
-    public static void main(String[] args) {
-        System.out.println("═══════════════════════════════════════════");
-        System.out.println("   💬 MiniChat Server - Liquid Glass Edition");
-        System.out.println("═══════════════════════════════════════════");
-
-        try {
-            ServerSocket serverSocket = new ServerSocket(PORT);
-            System.out.println("✅ Server đang chạy tại cổng " + PORT);
-            System.out.println("📌 Rooms available: " + rooms.keySet());
-            System.out.println("⏳ Đang chờ clients kết nối...\n");
-
-            while (true) {
-                Socket clientSocket = serverSocket.accept();
-                System.out.println("🔗 Client mới kết nối: " + clientSocket.getInetAddress());
-
-                ClientHandler clientHandler = new ClientHandler(clientSocket);
-                allClients.add(clientHandler);
-
-                Thread thread = new Thread(clientHandler);
-                thread.start();
-            }
-
-        } catch (IOException e) {
-            System.err.println("❌ Lỗi Server: " + e.getMessage());
-        }
-    }
-
-    // ════════════════════════════════════════════════════════════════════
-    // ROOM MANAGEMENT
-    // ════════════════════════════════════════════════════════════════════
-    public static void createRoom(String roomName) {
-        if (!rooms.containsKey(roomName)) {
-            rooms.put(roomName, Collections.synchronizedSet(new HashSet<>()));
-            broadcastToAll("ROOM_CREATED:" + roomName);
-            System.out.println("📁 Room mới được tạo: " + roomName);
-        }
-    }
-
-    public static void joinRoom(ClientHandler client, String roomName) {
-        // Leave current room first
-        leaveCurrentRoom(client);
-
-        // Join new room
-        if (rooms.containsKey(roomName)) {
-            rooms.get(roomName).add(client);
-            client.setCurrentRoom(roomName);
-            broadcastToRoom(roomName, "SYSTEM:" + client.getUsername() + " đã tham gia " + roomName);
-            System.out.println("👤 " + client.getUsername() + " joined " + roomName);
-        }
-    }
-
-    public static void leaveCurrentRoom(ClientHandler client) {
-        String currentRoom = client.getCurrentRoom();
-        if (currentRoom != null && rooms.containsKey(currentRoom)) {
-            rooms.get(currentRoom).remove(client);
-            broadcastToRoom(currentRoom, "SYSTEM:" + client.getUsername() + " đã rời " + currentRoom);
-        }
-    }
-
-    public static void broadcastToRoom(String roomName, String message) {
-        if (rooms.containsKey(roomName)) {
-            synchronized (rooms.get(roomName)) {
-                for (ClientHandler client : rooms.get(roomName)) {
-                    client.sendMessage(message);
-                }
-            }
-        }
-    }
-
-    public static void broadcastToAll(String message) {
-        synchronized (allClients) {
-            for (ClientHandler client : allClients) {
-                client.sendMessage(message);
-            }
-        }
-    }
-
-    public static String getRoomList() {
-        return "ROOMS:" + String.join(",", rooms.keySet());
-    }
-
-    public static String getOnlineUsers() {
-        List<String> users = new ArrayList<>();
-        synchronized (allClients) {
-            for (ClientHandler client : allClients) {
-                users.add(client.getUsername() + ":"
-                        + (client.getCurrentRoom() != null ? client.getCurrentRoom() : "Lobby"));
-            }
-        }
-        return "ONLINE:" + String.join(",", users);
-    }
-
-    public static void removeClient(ClientHandler client) {
-        leaveCurrentRoom(client);
-        allClients.remove(client);
-        broadcastToAll("USER_LEFT:" + client.getUsername());
-        broadcastToAll(getOnlineUsers());
-    }
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class Server {
+
+    private static final int PORT = 9999;
+
+    // Delivery engine: "queue" (copy into every member's queue) or "ring"
+    // (publish once into the room's RoomRing, members read with a cursor)
+    public static final boolean RING_DELIVERY = "ring".equals(System.getProperty("minichat.delivery"));
+
+    // ════════════════════════════════════════════════════════════════════
+    // QUẢN LÝ ROOMS VÀ USERS
+    // ════════════════════════════════════════════════════════════════════
+    public static Map<String, Room> rooms = new ConcurrentHashMap<>();
+    public static Set<ClientHandler> allClients = Collections.synchronizedSet(new HashSet<>());
+    public static final RoomCatalog catalog = new RoomCatalog();
+    private static final int ROOM_PAGE_SIZE = 50;
+    // Catalog changes are batched into one pushed ROOMS_DELTA per window
+    private static final long ROOMS_PUSH_MS = 500;
+    private static final AtomicBoolean roomsPushScheduled = new AtomicBoolean();
+    private static long roomsPushedVersion = catalog.getVersion(); // scheduler thread only
+
+    // Room limits: total count, creation rate per client, idle eviction
+    private static final int MAX_ROOMS = Integer.getInteger("minichat.maxRooms", 100);
+    private static final int MAX_ROOM_CREATES = 3;
+    private static final long ROOM_CREATE_WINDOW_MS = 10 * 60_000;
+    private static final long ROOM_IDLE_MS = Long.getLong("minichat.roomIdleMs", 10 * 60_000);
+    private static final int MAX_SUBSCRIPTIONS = 50;
+    private static final String ROOM_NAME_PATTERN = "[\\p{L}\\p{N}_-]{1,32}";
+    // Held across the MAX_ROOMS check and the insert, so concurrent /create
+    // cannot both see room for one more. Removals only shrink the map.
+    private static final Object roomCreateLock = new Object();
+
+    // ════════════════════════════════════════════════════════════════════
+    // SESSIONS (resume token -> handler)
+    // ════════════════════════════════════════════════════════════════════
+    private static final long SESSION_GRACE_MS = 60_000;
+    private static final Map<String, ClientHandler> sessions = new ConcurrentHashMap<>();
+    private static final SecureRandom random = new SecureRandom();
+
+    public static final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "minichat-scheduler");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Default rooms
+    static {
+        for (String name : new String[] { "General", "Gaming", "Music", "Random" }) {
+            rooms.put(name, new Room(name, null, true));
+        }
+    }
+
+    public static void main(String[] args) {
+        System.out.println("═══════════════════════════════════════════");
+        System.out.println("   💬 MiniChat Server - Liquid Glass Edition");
+        System.out.println("═══════════════════════════════════════════");
+
+        try {
+            // Channel-backed sockets so connections can read/write pooled direct buffers
+            ServerSocketChannel serverChannel = ServerSocketChannel.open();
+            serverChannel.bind(new InetSocketAddress(PORT));
+            System.out.println("✅ Server đang chạy tại cổng " + PORT);
+            System.out.println("📌 Rooms available: " + rooms.keySet());
+            System.out.println("🚚 Delivery: " + (RING_DELIVERY ? "ring (" + RoomRing.CAPACITY + " slots/room)" : "queue"));
+            System.out.println("⏳ Đang chờ clients kết nối...\n");
+
+            scheduler.scheduleAtFixedRate(Server::evictIdleRooms, 1, 1, TimeUnit.MINUTES);
+
+            ContentFilter filter = ContentFilter.fromProperties();
+            if (filter != null) {
+                InterceptorChain.register(filter);
+            }
+            InterceptorChain.registerFromProperty();
+            InterceptorChain.compile();
+            MemoryBudget.start();
+            if (InterceptorChain.isTiming()) {
+                scheduler.scheduleAtFixedRate(() -> System.out.print(InterceptorChain.stats()), 1, 1, TimeUnit.MINUTES);
+            }
+
+            while (true) {
+                Socket clientSocket = serverChannel.accept().socket();
+                System.out.println("🔗 Client mới kết nối: " + clientSocket.getInetAddress());
+
+                ClientHandler clientHandler = new ClientHandler(clientSocket);
+                allClients.add(clientHandler);
+                ChatEvents.connection("connect", clientHandler, String.valueOf(clientSocket.getRemoteSocketAddress()));
+
+                Thread thread = new Thread(clientHandler);
+                thread.start();
+            }
+
+        } catch (IOException e) {
+            System.err.println("❌ Lỗi Server: " + e.getMessage());
+        }
+    }
+
+    // ════════════════════════════════════════════════════════════════════
+    // ROOM MANAGEMENT
+    // ════════════════════════════════════════════════════════════════════
+    // Returns an error message, or null if the room was created
+    public static String createRoom(ClientHandler client, String roomName) {
+        if (!roomName.matches(ROOM_NAME_PATTERN)) {
+            return "Tên phòng không hợp lệ (chữ, số, _ -, tối đa 32 ký tự)";
+        }
+        synchronized (roomCreateLock) {
+            if (rooms.containsKey(roomName)) {
+                return null;
+            }
+            if (rooms.size() >= MAX_ROOMS) {
+                return "Đã đạt số phòng tối đa (" + MAX_ROOMS + ")";
+            }
+            if (!client.allowRoomCreate(MAX_ROOM_CREATES, ROOM_CREATE_WINDOW_MS)) {
+                return "Bạn tạo phòng quá nhanh, hãy thử lại sau";
+            }
+            rooms.put(roomName, new Room(roomName, client.getUsername(), false));
+        }
+        catalogChanged(roomName);
+        broadcastToAll("ROOM_CREATED:" + roomName);
+        System.out.println("📁 Room mới được tạo: " + roomName + " (owner " + client.getUsername() + ")");
+        return null;
+    }
+
+    // Subscribe to the room if needed (other subscriptions stay) and make it
+    // the active room for plain chat lines
+    public static boolean joinRoom(ClientHandler client, String roomName) {
+        Room room = rooms.get(roomName);
+        if (room == null || !subscribe(client, room)) {
+            return false;
+        }
+        client.setCurrentRoom(roomName);
+        return true;
+    }
+
+    public static boolean subscribe(ClientHandler client, Room room) {
+        if (client.isSubscribed(room.getName())) {
+            return true;
+        }
+        if (client.getSubscriptions().size() >= MAX_SUBSCRIPTIONS) {
+            return false;
+        }
+        // Room may have been evicted in between
+        synchronized (room.getMembers()) {
+            if (room.isClosed()) {
+                return false;
+            }
+            room.getMembers().add(client);
+            room.touch();
+            if (room.getRing() != null) {
+                client.subscribeRing(room.getRing());
+            }
+        }
+        client.addSubscription(room.getName());
+        catalogChanged(room.getName());
+        ChatEvents.membership("join", client, room);
+        // ROOM_SYSTEM:room:text - a client following several rooms shows it only in that room
+        broadcastToRoom(room.getName(), "ROOM_SYSTEM:" + room.getName() + ":" + client.getUsername() + " đã tham gia "
+                + room.getName());
+        System.out.println("👤 " + client.getUsername() + " joined " + room.getName());
+        return true;
+    }
+
+    public static void leaveRoom(ClientHandler client, String roomName) {
+        if (!client.removeSubscription(roomName)) {
+            return;
+        }
+        if (roomName.equals(client.getCurrentRoom())) {
+            Iterator<String> next = client.getSubscriptions().iterator();
+            client.setCurrentRoom(next.hasNext() ? next.next() : null);
+        }
+        Room room = rooms.get(roomName);
+        if (room != null && room.getMembers().remove(client)) {
+            if (room.getRing() != null) {
+                client.unsubscribeRing(room.getRing());
+            }
+            room.touch();
+            catalogChanged(roomName);
+            ChatEvents.membership("leave", client, room);
+            broadcastToRoom(roomName, "ROOM_SYSTEM:" + roomName + ":" + client.getUsername() + " đã rời " + roomName);
+        }
+    }
+
+    public static void leaveAllRooms(ClientHandler client) {
+        for (String roomName : client.getSubscriptions()) {
+            leaveRoom(client, roomName);
+        }
+    }
+
+    public static void broadcastToRoom(String roomName, String message) {
+        Room room = rooms.get(roomName);
+        if (room != null) {
+            synchronized (room.getMembers()) {
+                deliver(room, message);
+            }
+        }
+    }
+
+    // Chat message: numbered per room and kept for resume replay
+    // Line format: KIND:room:seq:sender:body
+    public static void postToRoom(String roomName, String kind, ClientHandler from, String body) {
+        Room room = rooms.get(roomName);
+        if (room == null) {
+            return;
+        }
+        body = InterceptorChain.apply(MessageInterceptor.Stage.BROADCAST, from, roomName, body);
+        if (body == null) {
+            return;
+        }
+        RoomHistory history = room.getHistory();
+        synchronized (room.getMembers()) {
+            long seq = history.nextSeq();
+            String line = kind + ":" + roomName + ":" + seq + ":" + from.getUsername() + ":" + body;
+            history.append(seq, line);
+            room.touch();
+            deliver(room, line);
+        }
+    }
+
+    // Streamed /file upload: history keeps a short placeholder under the
+    // file's seq, members get FILE_BEGIN now and the data as it arrives
+    public static boolean beginFileStream(String roomName, String id, String sender, String name, long size) {
+        Room room = rooms.get(roomName);
+        if (room == null) {
+            return false;
+        }
+        RoomHistory history = room.getHistory();
+        synchronized (room.getMembers()) {
+            long seq = history.nextSeq();
+            history.append(seq, "MSG:" + roomName + ":" + seq + ":" + sender + ":📎 " + name + " (" + size + " bytes)");
+            room.touch();
+            deliver(room, "FILE_BEGIN:" + id + ":" + roomName + ":" + seq + ":" + sender + ":" + name + ":" + size);
+        }
+        return true;
+    }
+
+    // Caller holds the room's members lock
+    private static void deliver(Room room, String line) {
+        ChatEvents.Broadcast event = new ChatEvents.Broadcast();
+        event.begin();
+        RoomRing ring = room.getRing();
+        if (ring == null) {
+            FanOut.deliver(room.getMembers(), line);
+        } else {
+            ring.publish(line);
+            for (ClientHandler client : room.getMembers()) {
+                client.wakeWriter();
+            }
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.room = room.getName();
+            event.members = room.getMembers().size();
+            // Encoded size on the wire (Vietnamese text is mostly multi-byte)
+            event.bytes = line.getBytes(StandardCharsets.UTF_8).length;
+            event.commit();
+        }
+    }
+
+    // One page of older messages for a client's transcript:
+    // HISTORY:time:<line> per message (oldest first), then HISTORY_END:room:more
+    public static void sendHistory(ClientHandler client, String roomName, long beforeSeq, int limit) {
+        Room room = rooms.get(roomName);
+        boolean more = false;
+        if (room != null) {
+            RoomHistory history = room.getHistory();
+            List<String> lines = history.before(beforeSeq, limit);
+            for (String line : lines) {
+                client.sendMessage("HISTORY:" + line);
+            }
+            more = lines.size() == limit && history.getOldestSeq() < seqOf(lines.get(0).split(":", 2)[1]);
+        }
+        client.sendMessage("HISTORY_END:" + roomName + ":" + (more ? 1 : 0));
+    }
+
+    // Newer than afterSeq, for a client cache catching up: the newest limit
+    // lines as SINCE:time:<line>, then SINCE_END:room:gap:epoch (1 = lines were
+    // missed). A cache from another incarnation of the room (epoch differs, or
+    // its seq is past ours) gets everything we have and gap=1.
+    public static void sendSince(ClientHandler client, String roomName, long afterSeq, long epoch, int limit) {
+        Room room = rooms.get(roomName);
+        boolean gap = false;
+        long roomEpoch = 0;
+        if (room != null) {
+            RoomHistory history = room.getHistory();
+            roomEpoch = room.getEpoch();
+            if (afterSeq > 0 && (epoch != roomEpoch || afterSeq > history.getLastSeq())) {
+                afterSeq = 0;
+                gap = true;
+            }
+            List<String> lines = history.since(afterSeq, true);
+            gap |= lines.size() > limit || (afterSeq > 0 && history.getOldestSeq() > afterSeq + 1);
+            for (String line : lines.subList(Math.max(0, lines.size() - limit), lines.size())) {
+                client.sendMessage("SINCE:" + line);
+            }
+        }
+        client.sendMessage("SINCE_END:" + roomName + ":" + (gap ? 1 : 0) + ":" + roomEpoch);
+    }
+
+    // KIND:room:seq:...
+    private static long seqOf(String line) {
+        String[] parts = line.split(":", 4);
+        try {
+            return Long.parseLong(parts[2]);
+        } catch (RuntimeException e) {
+            return 0;
+        }
+    }
+
+    // Remove empty non-default rooms idle for too long, with their history
+    private static void evictIdleRooms() {
+        long now = System.currentTimeMillis();
+        for (Room room : rooms.values()) {
+            if (room.isDefaultRoom() || now - room.getLastActivity() < ROOM_IDLE_MS) {
+                continue;
+            }
+            boolean evicted = false;
+            synchronized (room.getMembers()) {
+                if (room.getMembers().isEmpty() && rooms.remove(room.getName(), room)) {
+                    room.close();
+                    evicted = true;
+                }
+            }
+            if (evicted) {
+                catalogChanged(room.getName());
+                broadcastToAll("ROOM_REMOVED:" + room.getName());
+                System.out.println("🗑 Room idle đã bị xóa: " + room.getName());
+            }
+        }
+    }
+
+    public static void broadcastToAll(String message) {
+        synchronized (allClients) {
+            for (ClientHandler client : allClients) {
+                client.sendMessage(message);
+            }
+        }
+    }
+
+    // ════════════════════════════════════════════════════════════════════
+    // ROOM CATALOG (versioned, paged, delta)
+    // ════════════════════════════════════════════════════════════════════
+    // Every catalog change goes through here: one ROOMS_DELTA is pushed to all
+    // clients at most every ROOMS_PUSH_MS, so clients never have to poll
+    private static void catalogChanged(String roomName) {
+        catalog.changed(roomName);
+        if (roomsPushScheduled.compareAndSet(false, true)) {
+            scheduler.schedule(Server::pushRoomDelta, ROOMS_PUSH_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static void pushRoomDelta() {
+        roomsPushScheduled.set(false);
+        long version = catalog.getVersion();
+        String delta = getRoomDelta(roomsPushedVersion);
+        roomsPushedVersion = version;
+        if (!delta.startsWith("ROOMS_NOT_MODIFIED:")) {
+            broadcastToAll(delta);
+        }
+    }
+
+    public static String getRoomList() {
+        return getRoomPage(0, "");
+    }
+
+    // ROOMS:version:page:pages:name=count,name=count (sorted, filtered by prefix)
+    public static String getRoomPage(int page, String prefix) {
+        long version = catalog.getVersion();
+        List<String> names = new ArrayList<>();
+        for (String name : rooms.keySet()) {
+            if (name.startsWith(prefix)) {
+                names.add(name);
+            }
+        }
+        Collections.sort(names);
+
+        int pages = Math.max(1, (names.size() + ROOM_PAGE_SIZE - 1) / ROOM_PAGE_SIZE);
+        page = Math.max(0, Math.min(page, pages - 1));
+        List<String> entries = new ArrayList<>();
+        for (String name : names.subList(page * ROOM_PAGE_SIZE, Math.min(names.size(), (page + 1) * ROOM_PAGE_SIZE))) {
+            Room room = rooms.get(name);
+            if (room != null) {
+                entries.add(name + "=" + room.getMemberCount());
+            }
+        }
+        return "ROOMS:" + version + ":" + page + ":" + pages + ":" + String.join(",", entries);
+    }
+
+    // ROOMS_NOT_MODIFIED:version, ROOMS_DELTA:version:+name=count,-name
+    // or a full first page when the change log does not reach back to since
+    public static String getRoomDelta(long since) {
+        long version = catalog.getVersion();
+        if (since == version) {
+            return "ROOMS_NOT_MODIFIED:" + version;
+        }
+        Set<String> changed = catalog.changedSince(since);
+        if (changed == null) {
+            return getRoomList();
+        }
+        List<String> entries = new ArrayList<>();
+        for (String name : changed) {
+            Room room = rooms.get(name);
+            entries.add(room != null ? "+" + name + "=" + room.getMemberCount() : "-" + name);
+        }
+        return "ROOMS_DELTA:" + version + ":" + String.join(",", entries);
+    }
+
+    public static String getOnlineUsers() {
+        List<String> users = new ArrayList<>();
+        synchronized (allClients) {
+            for (ClientHandler client : allClients) {
+                users.add(client.getUsername() + ":"
+                        + (client.getCurrentRoom() != null ? client.getCurrentRoom() : "Lobby"));
+            }
+        }
+        return "ONLINE:" + String.join(",", users);
+    }
+
+    public static void removeClient(ClientHandler client) {
+        leaveAllRooms(client);
+        allClients.remove(client);
+        broadcastToAll("USER_LEFT:" + client.getUsername());
+        broadcastToAll(getOnlineUsers());
+    }
+
+    // ════════════════════════════════════════════════════════════════════
+    // SESSION RESUME
+    // ════════════════════════════════════════════════════════════════════
+    public static String registerSession(ClientHandler client) {
+        byte[] bytes = new byte[16];
+        random.nextBytes(bytes);
+        StringBuilder token = new StringBuilder();
+        for (byte b : bytes) {
+            token.append(String.format("%02x", b));
+        }
+        sessions.put(token.toString(), client);
+        client.setResumeToken(token.toString());
+        return token.toString();
+    }
+
+    // Connection dropped: keep the session for a grace period instead of
+    // broadcasting USER_LEFT, so a quick reconnect causes no presence churn
+    public static void disconnectClient(ClientHandler client) {
+        if (client.isSuperseded()) {
+            return;
+        }
+        ChatEvents.connection(client.isQuitting() ? "quit" : "disconnect", client, null);
+        String token = client.getResumeToken();
+        if (token == null || client.isQuitting()) {
+            if (token != null) {
+                sessions.remove(token, client);
+            }
+            removeClient(client);
+            return;
+        }
+        client.setDetached(true);
+        System.out.println("⏸ " + client.getUsername() + " tạm ngắt, giữ session " + SESSION_GRACE_MS / 1000 + "s");
+        scheduler.schedule(() -> {
+            if (sessions.remove(token, client)) {
+                System.out.println("⌛ Session hết hạn: " + client.getUsername());
+                removeClient(client);
+            }
+        }, SESSION_GRACE_MS, TimeUnit.MILLISECONDS);
+    }
+
+    // Swap the new connection in place of the old one in every subscribed
+    // room and replay only the messages newer than the client's last seq
+    // for that room. Returns false if the token is unknown.
+    public static boolean resumeSession(ClientHandler client, String token, Map<String, Long> lastSeqs) {
+        // Claim the session in one step: the expiry task removes it the same
+        // way, so exactly one of the two gets it
+        ClientHandler old = sessions.remove(token);
+        if (old == null) {
+            return false;
+        }
+        // Old socket may still look alive (half-open): take it over anyway
+        old.supersede();
+
+        client.setUsername(old.getUsername());
+        client.setResumeToken(token);
+        allClients.remove(old);
+        sessions.put(token, client);
+
+        String active = old.getCurrentRoom();
+        client.sendMessage("RESUMED:" + (active != null ? active : ""));
+        for (String roomName : old.getSubscriptions()) {
+            Room room = rooms.get(roomName);
+            if (room == null) {
+                continue;
+            }
+            Long lastSeq = lastSeqs.get(roomName);
+            RoomHistory history = room.getHistory();
+            synchronized (room.getMembers()) {
+                if (lastSeq != null) {
+                    if (lastSeq + 1 < history.getOldestSeq()) {
+                        client.sendMessage("SYSTEM:Một số tin nhắn cũ trong " + roomName + " không còn trong bộ đệm");
+                    }
+                    for (String line : history.since(lastSeq, false)) {
+                        client.sendMessage(line);
+                    }
+                }
+                room.getMembers().remove(old);
+                room.getMembers().add(client);
+                if (room.getRing() != null) {
+                    old.unsubscribeRing(room.getRing());
+                    client.subscribeRing(room.getRing());
+                }
+            }
+            client.addSubscription(roomName);
+        }
+        client.setCurrentRoom(active);
+        for (String line : old.handOverPrivate(client)) {
+            client.sendMessage(line);
+        }
+        System.out.println("▶ " + client.getUsername() + " resumed " + client.getSubscriptions());
+        return true;
+    }
 }
\ No newline at end of file
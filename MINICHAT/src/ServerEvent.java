@@ -0,0 +1,197 @@
+// One line from the server, parsed once. Lines the UI reacts to get their
+// own type; everything else is an Other with its prefix and payload split
+// out. The raw line is always kept (caches and logs store it as is).
+public abstract class ServerEvent {
+
+    public final String line;
+
+    private ServerEvent(String line) {
+        this.line = line;
+    }
+
+    // MSG:room:seq:sender:text
+    public static final class RoomMessage extends ServerEvent {
+        public final String room;
+        public final long seq;
+        public final String sender;
+        public final String text;
+
+        RoomMessage(String line, String room, long seq, String sender, String text) {
+            super(line);
+            this.room = room;
+            this.seq = seq;
+            this.sender = sender;
+            this.text = text;
+        }
+    }
+
+    // PM:from:text (received) or PM_SENT:to:text (echo of our own)
+    public static final class PrivateMessage extends ServerEvent {
+        public final String user;
+        public final String text;
+        public final boolean sent;
+
+        PrivateMessage(String line, String user, String text, boolean sent) {
+            super(line);
+            this.user = user;
+            this.text = text;
+            this.sent = sent;
+        }
+    }
+
+    // SYSTEM:text, or ROOM_SYSTEM:room:text for a notice about one room
+    public static final class Notice extends ServerEvent {
+        // null for connection-wide notices
+        public final String room;
+        public final String text;
+
+        Notice(String line, String room, String text) {
+            super(line);
+            this.room = room;
+            this.text = text;
+        }
+    }
+
+    // JOINED:room, SUBSCRIBED:room, LEFT:room
+    public static final class Membership extends ServerEvent {
+        public enum Change {
+            JOINED, SUBSCRIBED, LEFT
+        }
+
+        public final Change change;
+        public final String room;
+
+        Membership(String line, Change change, String room) {
+            super(line);
+            this.change = change;
+            this.room = room;
+        }
+    }
+
+    // SESSION:token (new session), RESUMED:... (old one taken over), RESUME_FAILED
+    public static final class Session extends ServerEvent {
+        public enum State {
+            STARTED, RESUMED, FAILED
+        }
+
+        public final State state;
+        // STARTED only
+        public final String token;
+
+        Session(String line, State state, String token) {
+            super(line);
+            this.state = state;
+            this.token = token;
+        }
+    }
+
+    // HISTORY:time:<MSG line> / SINCE:time:<MSG line>, ended by
+    // HISTORY_END:room:more / SINCE_END:room:gap:epoch
+    public static final class Page extends ServerEvent {
+        public final boolean since;
+        // Inner MSG line, null on the END line
+        public final String message;
+        // Send time of message (ms), 0 if the server did not say
+        public final long time;
+        // END line only
+        public final String room;
+        public final boolean flag;
+        // SINCE_END only: incarnation of the room the seqs belong to
+        public final long epoch;
+
+        Page(String line, boolean since, String message, long time, String room, boolean flag, long epoch) {
+            super(line);
+            this.since = since;
+            this.message = message;
+            this.time = time;
+            this.room = room;
+            this.flag = flag;
+            this.epoch = epoch;
+        }
+
+        public boolean isEnd() {
+            return message == null;
+        }
+    }
+
+    // Any other line: KIND:payload (payload empty if there is no ':')
+    public static final class Other extends ServerEvent {
+        public final String kind;
+        public final String payload;
+
+        Other(String line, String kind, String payload) {
+            super(line);
+            this.kind = kind;
+            this.payload = payload;
+        }
+    }
+
+    public static ServerEvent parse(String line) {
+        int sep = line.indexOf(':');
+        String kind = sep < 0 ? line : line.substring(0, sep);
+        String payload = sep < 0 ? "" : line.substring(sep + 1);
+        switch (kind) {
+            case "MSG": {
+                String[] parts = payload.split(":", 4);
+                if (parts.length == 4) {
+                    return new RoomMessage(line, parts[0], parseLong(parts[1]), parts[2], parts[3]);
+                }
+                break;
+            }
+            case "PM":
+            case "PM_SENT": {
+                String[] parts = payload.split(":", 2);
+                if (parts.length == 2) {
+                    return new PrivateMessage(line, parts[0], parts[1], kind.equals("PM_SENT"));
+                }
+                break;
+            }
+            case "SYSTEM":
+                return new Notice(line, null, payload);
+            case "ROOM_SYSTEM": {
+                String[] parts = payload.split(":", 2);
+                if (parts.length == 2) {
+                    return new Notice(line, parts[0], parts[1]);
+                }
+                break;
+            }
+            case "JOINED":
+                return new Membership(line, Membership.Change.JOINED, payload);
+            case "SUBSCRIBED":
+                return new Membership(line, Membership.Change.SUBSCRIBED, payload);
+            case "LEFT":
+                return new Membership(line, Membership.Change.LEFT, payload);
+            case "SESSION":
+                return new Session(line, Session.State.STARTED, payload);
+            case "RESUMED":
+                return new Session(line, Session.State.RESUMED, null);
+            case "RESUME_FAILED":
+                return new Session(line, Session.State.FAILED, null);
+            case "HISTORY":
+            case "SINCE":
+                return new Page(line, kind.equals("SINCE"), TranscriptStore.lineOf(payload),
+                        TranscriptStore.timeOf(payload), null, false, 0);
+            case "HISTORY_END":
+            case "SINCE_END": {
+                // Room names never contain ':'
+                String[] parts = payload.split(":");
+                if (parts.length >= 2) {
+                    return new Page(line, kind.equals("SINCE_END"), null, 0, parts[0], parts[1].equals("1"),
+                            parts.length > 2 ? parseLong(parts[2]) : 0);
+                }
+                break;
+            }
+            default:
+                break;
+        }
+        return new Other(line, kind, payload);
+    }
+
+    private static long parseLong(String text) {
+        try {
+            return Long.parseLong(text);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
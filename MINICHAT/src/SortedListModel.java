@@ -0,0 +1,171 @@
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+import javax.swing.AbstractListModel;
+
+// List model kept sorted by a key taken from each value (user list values are
+// "name:room", keyed by name). sync() takes a whole new snapshot and fires
+// events only for what differs - rows added, removed, or whose value changed
+// (a user moving rooms) - so JList keeps its selection and only touches those
+// rows. Lookups by key are binary searches. EDT only.
+public class SortedListModel extends AbstractListModel<String> {
+
+    // Case-insensitive, ties broken by exact order so keys stay unique
+    private static final Comparator<String> ORDER = String.CASE_INSENSITIVE_ORDER
+            .thenComparing(Comparator.naturalOrder());
+
+    private final Function<String, String> keyOf;
+    private final List<String> values = new ArrayList<>();
+    private final List<String> keys = new ArrayList<>();
+
+    // Pending run of one kind of change, fired as one interval
+    private static final int NONE = 0, ADDED = 1, REMOVED = 2, CHANGED = 3;
+    private int runKind = NONE;
+    private int runStart;
+    private int runEnd;
+
+    public SortedListModel(Function<String, String> keyOf) {
+        this.keyOf = keyOf;
+    }
+
+    @Override
+    public int getSize() {
+        return values.size();
+    }
+
+    @Override
+    public String getElementAt(int index) {
+        return values.get(index);
+    }
+
+    public boolean containsKey(String key) {
+        return indexOfKey(key) >= 0;
+    }
+
+    // Row of key, or -(insertion point) - 1
+    public int indexOfKey(String key) {
+        int lo = 0;
+        int hi = keys.size() - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = ORDER.compare(keys.get(mid), key);
+            if (cmp < 0) {
+                lo = mid + 1;
+            } else if (cmp > 0) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(lo + 1);
+    }
+
+    // Insert, or replace the value with the same key
+    public void put(String value) {
+        String key = keyOf.apply(value);
+        int index = indexOfKey(key);
+        if (index >= 0) {
+            if (!values.get(index).equals(value)) {
+                values.set(index, value);
+                fireContentsChanged(this, index, index);
+            }
+            return;
+        }
+        index = -index - 1;
+        values.add(index, value);
+        keys.add(index, key);
+        fireIntervalAdded(this, index, index);
+    }
+
+    public void removeKey(String key) {
+        int index = indexOfKey(key);
+        if (index >= 0) {
+            values.remove(index);
+            keys.remove(index);
+            fireIntervalRemoved(this, index, index);
+        }
+    }
+
+    // Row's look depends on state outside the model (counts, unread): repaint it
+    public void touch(String key) {
+        int index = indexOfKey(key);
+        if (index >= 0) {
+            fireContentsChanged(this, index, index);
+        }
+    }
+
+    // Make the model hold exactly these values (one per key; later duplicates lose)
+    public void sync(Iterable<String> snapshot) {
+        TreeMap<String, String> wanted = new TreeMap<>(ORDER);
+        for (String value : snapshot) {
+            wanted.putIfAbsent(keyOf.apply(value), value);
+        }
+        // Merge the two sorted sequences, editing in place from the top down
+        int i = 0;
+        for (Map.Entry<String, String> entry : wanted.entrySet()) {
+            String key = entry.getKey();
+            while (i < keys.size() && ORDER.compare(keys.get(i), key) < 0) {
+                note(REMOVED, i);
+                values.remove(i);
+                keys.remove(i);
+            }
+            if (i < keys.size() && ORDER.compare(keys.get(i), key) == 0) {
+                if (!values.get(i).equals(entry.getValue())) {
+                    note(CHANGED, i);
+                    values.set(i, entry.getValue());
+                }
+            } else {
+                note(ADDED, i);
+                values.add(i, entry.getValue());
+                keys.add(i, key);
+            }
+            i++;
+        }
+        while (i < keys.size()) {
+            note(REMOVED, i);
+            values.remove(i);
+            keys.remove(i);
+        }
+        flushRun();
+    }
+
+    // Called just before each edit: extend the pending run if the edit continues
+    // it, else fire the run first (so listeners never see a later edit early).
+    // Removals in a row all happen at the same index; adds and changes step by one.
+    private void note(int kind, int index) {
+        if (runKind == kind) {
+            if (kind == REMOVED && index == runStart) {
+                runEnd++;
+                return;
+            }
+            if (kind != REMOVED && index == runEnd + 1) {
+                runEnd = index;
+                return;
+            }
+        }
+        flushRun();
+        runKind = kind;
+        runStart = index;
+        runEnd = index;
+    }
+
+    private void flushRun() {
+        switch (runKind) {
+            case ADDED:
+                fireIntervalAdded(this, runStart, runEnd);
+                break;
+            case REMOVED:
+                fireIntervalRemoved(this, runStart, runEnd);
+                break;
+            case CHANGED:
+                fireContentsChanged(this, runStart, runEnd);
+                break;
+            default:
+                break;
+        }
+        runKind = NONE;
+    }
+}
@@ -0,0 +1,205 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+// Non-blocking TCP transport on a shared ClientLoop. Writes from any thread
+// are queued and flushed by the loop; OP_WRITE is only asked for while the
+// socket buffer is full.
+public class TcpTransport implements ChatTransport, ClientLoop.Ready {
+
+    private static final class Write {
+        final ByteBuffer data;
+        final CompletableFuture<Void> done;
+
+        Write(ByteBuffer data, CompletableFuture<Void> done) {
+            this.data = data;
+            this.done = done;
+        }
+    }
+
+    private final String host;
+    private final int port;
+    private final ClientLoop loop;
+
+    // Loop thread only
+    private Handler handler;
+    private SocketChannel channel;
+    private SelectionKey key;
+    private boolean open = false;
+
+    // Guarded by this
+    private final ArrayDeque<Write> queue = new ArrayDeque<>();
+    private long pendingBytes = 0;
+    private boolean flushScheduled = false;
+    private boolean closed = false;
+
+    public TcpTransport(String host, int port) {
+        this(host, port, ClientLoop.next());
+    }
+
+    public TcpTransport(String host, int port, ClientLoop loop) {
+        this.host = host;
+        this.port = port;
+        this.loop = loop;
+    }
+
+    @Override
+    public void open(Handler handler) {
+        loop.execute(() -> {
+            this.handler = handler;
+            try {
+                channel = SocketChannel.open();
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                boolean connected = channel.connect(new InetSocketAddress(host, port));
+                key = channel.register(loop.selector(), connected ? SelectionKey.OP_READ : SelectionKey.OP_CONNECT,
+                        this);
+                if (connected) {
+                    opened();
+                }
+            } catch (IOException e) {
+                fail(e);
+            }
+        });
+    }
+
+    @Override
+    public void write(ByteBuffer data, CompletableFuture<Void> done) {
+        boolean schedule;
+        synchronized (this) {
+            if (closed) {
+                done.completeExceptionally(new IOException("Kết nối đã đóng"));
+                return;
+            }
+            queue.add(new Write(data, done));
+            pendingBytes += data.remaining();
+            schedule = !flushScheduled;
+            flushScheduled = true;
+        }
+        if (schedule) {
+            loop.execute(this::flush);
+        }
+    }
+
+    @Override
+    public synchronized long pendingBytes() {
+        return pendingBytes;
+    }
+
+    @Override
+    public void close() {
+        loop.execute(() -> fail(null));
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // LOOP THREAD
+    // ═══════════════════════════════════════════════════════════════════
+    @Override
+    public void ready(SelectionKey key) {
+        try {
+            if (key.isConnectable()) {
+                channel.finishConnect();
+                key.interestOps(SelectionKey.OP_READ);
+                opened();
+            }
+            if (key.isValid() && key.isReadable()) {
+                ByteBuffer buffer = loop.readBuffer;
+                buffer.clear();
+                int n = channel.read(buffer);
+                if (n < 0) {
+                    fail(null);
+                    return;
+                }
+                buffer.flip();
+                handler.received(buffer);
+            }
+            if (key.isValid() && key.isWritable()) {
+                flush();
+            }
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    private void opened() {
+        open = true;
+        handler.opened();
+        flush();
+    }
+
+    private void flush() {
+        synchronized (this) {
+            flushScheduled = false;
+        }
+        if (!open || closed()) {
+            return;
+        }
+        try {
+            while (true) {
+                Write next;
+                synchronized (this) {
+                    next = queue.peek();
+                }
+                if (next == null) {
+                    break;
+                }
+                int before = next.data.remaining();
+                channel.write(next.data);
+                synchronized (this) {
+                    pendingBytes -= before - next.data.remaining();
+                    if (!next.data.hasRemaining()) {
+                        queue.poll();
+                    }
+                }
+                if (next.data.hasRemaining()) {
+                    // Socket buffer full: wait for OP_WRITE
+                    key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                    return;
+                }
+                next.done.complete(null);
+            }
+            key.interestOps(SelectionKey.OP_READ);
+            handler.drained();
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    private synchronized boolean closed() {
+        return closed;
+    }
+
+    private void fail(IOException cause) {
+        List<Write> dropped;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            dropped = new ArrayList<>(queue);
+            queue.clear();
+            pendingBytes = 0;
+        }
+        try {
+            if (channel != null) {
+                channel.close();
+            }
+        } catch (IOException ignored) {
+        }
+        IOException reason = cause != null ? cause : new EOFException("Kết nối đã đóng");
+        for (Write write : dropped) {
+            write.done.completeExceptionally(reason);
+        }
+        if (handler != null) {
+            handler.closed(cause);
+        }
+    }
+}
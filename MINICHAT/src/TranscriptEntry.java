@@ -0,0 +1,73 @@
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+
+// One row of the chat transcript. Immutable apart from the layout cache,
+// which only the EDT touches.
+public class TranscriptEntry {
+
+    public enum Kind {
+        MESSAGE, PRIVATE, SYSTEM, FILE
+    }
+
+    public final Kind kind;
+    // Sent by this user (drawn on the right)
+    public final boolean mine;
+    // Sender name, or the "To/From" label for private messages
+    public final String sender;
+    public final String text;
+    // Room sequence number, 0 for rows that are not room messages
+    public final long seq;
+    public final long timestamp;
+
+    // FILE rows only
+    public final String fileName;
+    public final long fileSize;
+    // Spooled copy on disk, completes when fully received
+    public final CompletableFuture<Path> file;
+
+    // Layout cache: row height measured at heightWidth
+    int height = -1;
+    int heightWidth = -1;
+
+    // Bubble text cache (BubblePainter): lines wrapped at wrapWidth
+    String[] wrapLines;
+    int wrapWidth = -1;
+    int wrapTextWidth;
+    String timeText;
+
+    private TranscriptEntry(Kind kind, boolean mine, String sender, String text, long seq, long timestamp,
+            String fileName, long fileSize, CompletableFuture<Path> file) {
+        this.kind = kind;
+        this.mine = mine;
+        this.sender = sender;
+        this.text = text;
+        this.seq = seq;
+        this.timestamp = timestamp;
+        this.fileName = fileName;
+        this.fileSize = fileSize;
+        this.file = file;
+    }
+
+    public static TranscriptEntry message(boolean mine, String sender, String text, long seq) {
+        return message(mine, sender, text, seq, System.currentTimeMillis());
+    }
+
+    // Row loaded from history: shown with the time it was sent
+    public static TranscriptEntry message(boolean mine, String sender, String text, long seq, long timestamp) {
+        return new TranscriptEntry(Kind.MESSAGE, mine, sender, text, seq, timestamp, null, 0, null);
+    }
+
+    public static TranscriptEntry privateMessage(boolean mine, String label, String text) {
+        return new TranscriptEntry(Kind.PRIVATE, mine, label, text, 0, System.currentTimeMillis(), null, 0, null);
+    }
+
+    public static TranscriptEntry system(String text) {
+        return new TranscriptEntry(Kind.SYSTEM, false, null, text, 0, System.currentTimeMillis(), null, 0, null);
+    }
+
+    public static TranscriptEntry file(boolean mine, String sender, String fileName, long fileSize,
+            CompletableFuture<Path> file, long seq) {
+        return new TranscriptEntry(Kind.FILE, mine, sender, null, seq, System.currentTimeMillis(), fileName,
+                fileSize, file);
+    }
+}
@@ -0,0 +1,100 @@
+import java.util.ArrayList;
+import java.util.List;
+
+// Rows of the transcript for the room on screen, capped at a scrollback
+// limit: appending past the cap drops the oldest rows. Older history can
+// be paged in at the top until the cap is reached. EDT only.
+public class TranscriptModel {
+
+    public interface Listener {
+        void rowsAppended(int first, int count);
+
+        void rowsPrepended(int count);
+
+        void rowsTrimmed(int count);
+
+        void rowsReset();
+    }
+
+    private final int capacity;
+    // Trim in steps so appends stay O(1) amortized
+    private final int trimSlack;
+    private final ArrayList<TranscriptEntry> rows = new ArrayList<>();
+    private final List<Listener> listeners = new ArrayList<>();
+
+    public TranscriptModel(int capacity) {
+        this.capacity = capacity;
+        this.trimSlack = Math.max(1, capacity / 10);
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public int size() {
+        return rows.size();
+    }
+
+    public TranscriptEntry get(int index) {
+        return rows.get(index);
+    }
+
+    public boolean isFull() {
+        return rows.size() >= capacity;
+    }
+
+    // Lowest room seq on screen, or Long.MAX_VALUE if there is none
+    public long oldestSeq() {
+        for (TranscriptEntry entry : rows) {
+            if (entry.seq > 0) {
+                return entry.seq;
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    public void append(TranscriptEntry entry) {
+        rows.add(entry);
+        for (Listener listener : listeners) {
+            listener.rowsAppended(rows.size() - 1, 1);
+        }
+        if (rows.size() > capacity + trimSlack) {
+            int drop = rows.size() - capacity;
+            rows.subList(0, drop).clear();
+            for (Listener listener : listeners) {
+                listener.rowsTrimmed(drop);
+            }
+        }
+    }
+
+    // Older rows (oldest first); rows already on screen and rows past the
+    // scrollback cap are skipped. Returns how many were added.
+    public int prepend(List<TranscriptEntry> older) {
+        long oldest = oldestSeq();
+        List<TranscriptEntry> fresh = new ArrayList<>();
+        for (TranscriptEntry entry : older) {
+            if (entry.seq < oldest) {
+                fresh.add(entry);
+            }
+        }
+        int room = Math.max(0, capacity - rows.size());
+        if (fresh.size() > room) {
+            fresh = fresh.subList(fresh.size() - room, fresh.size());
+        }
+        if (fresh.isEmpty()) {
+            return 0;
+        }
+        rows.addAll(0, fresh);
+        for (Listener listener : listeners) {
+            listener.rowsPrepended(fresh.size());
+        }
+        return fresh.size();
+    }
+
+    public void clear() {
+        rows.clear();
+        for (Listener listener : listeners) {
+            listener.rowsReset();
+        }
+    }
+}
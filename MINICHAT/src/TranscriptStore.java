@@ -0,0 +1,38 @@
+import java.util.List;
+
+// Where older transcript rows come from when the user scrolls to the top.
+// Lines are server protocol lines with their send time in front
+// (time:MSG:room:seq:sender:text), oldest first; the callback runs on the EDT.
+public interface TranscriptStore {
+
+    interface Callback {
+        // more = even older lines may exist
+        void loaded(List<String> lines, boolean more);
+    }
+
+    void loadBefore(String room, long beforeSeq, int limit, Callback callback);
+
+    static String stamp(long time, String line) {
+        return time + ":" + line;
+    }
+
+    // Send time of a stamped line, 0 if it has none (protocol lines start with a letter)
+    static long timeOf(String stamped) {
+        if (!isStamped(stamped)) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(stamped.substring(0, stamped.indexOf(':')));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    static String lineOf(String stamped) {
+        return isStamped(stamped) ? stamped.substring(stamped.indexOf(':') + 1) : stamped;
+    }
+
+    static boolean isStamped(String line) {
+        return !line.isEmpty() && Character.isDigit(line.charAt(0)) && line.indexOf(':') > 0;
+    }
+}